@@ -0,0 +1,38 @@
+package com.zamek.flight.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runner of the benchmarks.
+ *
+ * Takes the usual JMH options, the results are written as json to {@value #RESULT_FILE} unless
+ * an other result file or format is given. The benchmarks read the data directory, so run them
+ * from the root of the project:
+ * <pre>
+ * mvn install -DskipTests
+ * mvn -f benchmark/pom.xml package
+ * java -jar benchmark/target/benchmarks.jar [JMH options]
+ * </pre>
+ *
+ * @author zamek
+ *
+ */
+public class Benchmarks {
+	public final static String RESULT_FILE = "benchmark/target/jmh-result.json"; //$NON-NLS-1$
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(commandLine);
+		if (!commandLine.getResultFormat().hasValue())
+			options.resultFormat(ResultFormatType.JSON);
+		if (!commandLine.getResult().hasValue())
+			options.result(RESULT_FILE);
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,65 @@
+package com.zamek.flight.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zamek.flight.FlightTable;
+import com.zamek.flight.factory.LoaderType;
+import com.zamek.flight.factory.XMLFactory;
+
+/**
+ * Loading of synthetic flights xml files
+ *
+ * @author zamek
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int flights;
+
+	@Param({ "SAX", "STAX", "PARALLEL" })
+	public LoaderType loader;
+
+	private Path xml;
+
+	@Setup
+	public void setup() throws IOException {
+		this.xml = Files.createTempFile("flights", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		SyntheticFeed.write(this.xml, this.flights);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(this.xml);
+	}
+
+	@Benchmark
+	public FlightTable loadXml() {
+		XMLFactory factory = this.loader.create(this.xml.toString(), false);
+		factory.loadPopulation();
+		factory.loadXml();
+		return factory.getFlightTable();
+	}
+}
@@ -0,0 +1,77 @@
+package com.zamek.flight.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.City;
+import com.zamek.flight.Data;
+import com.zamek.flight.Flight;
+
+/**
+ * Lookups of the loaded data
+ *
+ * @author zamek
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LookupBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int flights;
+
+	private Path xml;
+	private String[] names;
+	private Airline[] airlines;
+	private int next;
+
+	@Setup
+	public void setup() throws IOException {
+		this.xml = Files.createTempFile("flights", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		SyntheticFeed.write(this.xml, this.flights);
+		Data.getInstance().load(this.xml.toString(), false);
+		List<String> cityNames = new ArrayList<>();
+		for (City c : Data.getInstance().getCities())
+			cityNames.add(c.getName().toUpperCase());
+		this.names = cityNames.toArray(new String[cityNames.size()]);
+		this.airlines = Data.getInstance().getAirlines().toArray(new Airline[0]);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(this.xml);
+	}
+
+	@Benchmark
+	public Optional<City> findCity() {
+		return Data.getInstance().findCity(this.names[this.next++ % this.names.length]);
+	}
+
+	@Benchmark
+	public List<Flight> getFlightOfAirline() {
+		return Data.getInstance().getFlightOfAirline(this.airlines[this.next++ % this.airlines.length]);
+	}
+}
@@ -0,0 +1,56 @@
+package com.zamek.flight.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zamek.flight.factory.CityRecord;
+import com.zamek.flight.factory.PopulationFile;
+import com.zamek.flight.factory.XMLFactory;
+
+/**
+ * Indexing of the population database and lookup of its cities
+ *
+ * @author zamek
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PopulationBenchmark {
+	private final static String[] NAMES = { "Budapest", "new york", "Sao Paulo", "Nowhere" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+	private PopulationFile population;
+	private int next;
+
+	@Setup
+	public void setup() throws IOException {
+		this.population = PopulationFile.open(XMLFactory.POPULATION_FILE);
+	}
+
+	/**
+	 * The work of {@link XMLFactory#loadPopulation()} without its thread
+	 */
+	@Benchmark
+	public PopulationFile loadPopulation() throws IOException {
+		return PopulationFile.open(XMLFactory.POPULATION_FILE);
+	}
+
+	@Benchmark
+	public CityRecord find() {
+		return this.population.find(NAMES[this.next++ % NAMES.length]);
+	}
+}
@@ -0,0 +1,105 @@
+package com.zamek.flight.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zamek.flight.City;
+import com.zamek.flight.Data;
+import com.zamek.flight.Flight;
+import com.zamek.flight.dijkstra.DijkstraEngine;
+import com.zamek.flight.dijkstra.Metric;
+
+/**
+ * Shortest path searches on synthetic graphs and printing of the found paths
+ *
+ * @author zamek
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RoutingBenchmark {
+	private final static int PAIRS = 64;
+
+	@Param({ "1000", "10000", "100000" })
+	public int flights;
+
+	private SyntheticFeed feed;
+	private City[] sources;
+	private City[] targets;
+	private LinkedList<Flight> path;
+	private PrintStream out;
+	private int next;
+
+	@Setup
+	public void setup() throws IOException {
+		this.feed = new SyntheticFeed(this.flights);
+		List<City> cities = this.feed.getCities();
+		this.sources = new City[PAIRS];
+		this.targets = new City[PAIRS];
+		for (int i = 0; i < PAIRS; ++i) {
+			this.sources[i] = cities.get(i * 7919 % cities.size());
+			this.targets[i] = cities.get((i * 7919 + cities.size() / 2) % cities.size());
+		}
+		this.path = executeAndGetPath();
+		this.out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// discarded
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				// discarded
+			}
+		}));
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(this.out);
+	}
+
+	@Benchmark
+	public LinkedList<Flight> executeAndGetPath() {
+		int pair = this.next++ % PAIRS;
+		DijkstraEngine engine = new DijkstraEngine(this.feed.getIndex());
+		engine.execute(this.sources[pair], null, Metric.DISTANCE);
+		return engine.getPath(this.targets[pair]);
+	}
+
+	@Benchmark
+	public LinkedList<Flight> pooledExecuteAndGetPath() {
+		int pair = this.next++ % PAIRS;
+		return this.feed.getIndex().withDijkstra(engine -> {
+			engine.execute(this.sources[pair], null, Metric.DISTANCE);
+			return engine.getPath(this.targets[pair]);
+		});
+	}
+
+	@Benchmark
+	public void printPath() {
+		Data.printPath(this.path.getFirst().getSource(), this.path.getLast().getDestination(), this.path);
+	}
+}
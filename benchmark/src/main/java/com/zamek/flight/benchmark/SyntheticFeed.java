@@ -0,0 +1,164 @@
+package com.zamek.flight.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.City;
+import com.zamek.flight.Flight;
+import com.zamek.flight.FlightTable;
+import com.zamek.flight.dijkstra.Graph;
+import com.zamek.flight.dijkstra.GraphIndex;
+import com.zamek.flight.dijkstra.GreatCircle;
+import com.zamek.flight.factory.CityRecord;
+import com.zamek.flight.factory.PopulationFile;
+import com.zamek.flight.factory.XMLFactory;
+import com.zamek.flight.generator.TimetableGenerator;
+
+/**
+ * Reproducible random graph of flights between the cities of the population database, built in memory
+ * for the searches. The xml feeds of the loading benchmarks are written by the timetable generator.
+ *
+ * Every city gets a flight to the next one, so the graph is strongly connected, the rest of the
+ * flights connect random cities. Distances are the great-circle distances, durations follow
+ * from a cruising speed.
+ *
+ * @author zamek
+ *
+ */
+public class SyntheticFeed implements Graph {
+	private final static long SEED = 42;
+	private final static int SPEED = 800;
+	private final static int TAXI_SECONDS = 30 * 60;
+	private final static int DAY_SECONDS = 24 * 60 * 60;
+	private final static int MIN_CITIES = 100;
+	private final static int MAX_CITIES = 5000;
+	public final static int AIRLINES = 10;
+
+	private final FlightTable table;
+	private final List<Flight> flights;
+	private final GraphIndex index;
+
+	/**
+	 * Generate a feed
+	 *
+	 * @param cityCount number of cities, at most the number of distinct names in the population database
+	 * @param flightCount number of flights, at least the number of cities
+	 * @param airlineCount number of airlines
+	 * @throws IOException if the population database cannot be read
+	 */
+	public SyntheticFeed(int cityCount, int flightCount, int airlineCount) throws IOException {
+		List<CityRecord> records = readCities(cityCount);
+		List<City> cities = new ArrayList<>(records.size());
+		List<Airline> airlines = new ArrayList<>(airlineCount);
+		for (int a = 0; a < airlineCount; ++a)
+			airlines.add(Airline.valueOf("Synthetic" + a)); //$NON-NLS-1$
+
+		Random random = new Random(SEED);
+		this.table = new FlightTable(flightCount);
+		for (CityRecord r : records) {
+			City city = City.valueOf(r.getName());
+			this.table.addCity(city, r.getPopulation(), r.getLatitude(), r.getLongitude(), r.getAsciiName());
+			cities.add(city);
+		}
+		for (int i = 0; i < flightCount; ++i) {
+			City from = cities.get(i % cities.size());
+			City to = i < cities.size() ? cities.get((i + 1) % cities.size()) : cities.get(random.nextInt(cities.size()));
+			if (to == from)
+				to = cities.get((cities.indexOf(from) + 1) % cities.size());
+			int f = this.table.indexOf(from);
+			int t = this.table.indexOf(to);
+			int distance = (int) Math.max(1, Math.round(GreatCircle.distance(Math.toRadians(this.table.getLatitude(f)),
+					Math.toRadians(this.table.getLongitude(f)), Math.toRadians(this.table.getLatitude(t)), Math.toRadians(this.table.getLongitude(t)))));
+			int duration = Math.min(DAY_SECONDS - 1, TAXI_SECONDS + distance * 3600 / SPEED);
+			int departure = random.nextInt(DAY_SECONDS / 300) * 300;
+			this.table.add("SF" + i, from, to, airlines.get(random.nextInt(airlineCount)), distance, departure, duration); //$NON-NLS-1$
+		}
+		this.flights = this.table.toList();
+		this.index = new GraphIndex(this);
+	}
+
+	/**
+	 * Generate a feed with ten flights per city
+	 *
+	 * @param flightCount number of flights
+	 * @throws IOException if the population database cannot be read
+	 */
+	public SyntheticFeed(int flightCount) throws IOException {
+		this(cityCount(flightCount), Math.max(MIN_CITIES, flightCount), AIRLINES);
+	}
+
+	private static int cityCount(int flightCount) {
+		return Math.max(MIN_CITIES, Math.min(MAX_CITIES, flightCount / 10));
+	}
+
+	/**
+	 * Write a flights xml of the same size as a generated feed
+	 *
+	 * @param file the xml file
+	 * @param flightCount number of flights
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path file, int flightCount) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+			new TimetableGenerator(PopulationFile.open(XMLFactory.POPULATION_FILE), cityCount(flightCount))
+					.flights(Math.max(MIN_CITIES, flightCount)).airlines(AIRLINES).seed(SEED).write(out);
+		}
+		catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static List<CityRecord> readCities(int count) throws IOException {
+		Set<String> names = new HashSet<>();
+		List<CityRecord> cities = new ArrayList<>(count);
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(XMLFactory.POPULATION_FILE), StandardCharsets.UTF_8)) {
+			reader.readLine(); // header
+			String line;
+			while (cities.size() < count && (line = reader.readLine()) != null) {
+				String[] fields = line.split(","); //$NON-NLS-1$
+				if (line.indexOf('"') >= 0 || fields.length < 6 || !names.add(fields[0]))
+					continue;
+
+				cities.add(new CityRecord(fields[0], fields[1], Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+						(int) Double.parseDouble(fields[4]), fields[5]));
+			}
+		}
+		if (cities.size() < 2)
+			throw new IOException("Not enough cities in the population database"); //$NON-NLS-1$
+		return cities;
+	}
+
+	@Override
+	public List<City> getCities() {
+		return this.table.getCities();
+	}
+
+	@Override
+	public List<Flight> getFlights() {
+		return this.flights;
+	}
+
+	@Override
+	public FlightTable getFlightTable() {
+		return this.table;
+	}
+
+	@Override
+	public GraphIndex getIndex() {
+		return this.index;
+	}
+}
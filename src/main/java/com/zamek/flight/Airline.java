@@ -4,21 +4,50 @@ import org.apache.commons.lang3.StringUtils;
 /**
  * Airline for the application
  * 
+ * Airlines are interned by their names, every name has one living airline with a dense id,
+ * so airlines are equal only to themselves, an airline has no public constructor.
+ * 
  * @author zamek
  *
  */
 public class Airline {
+	public final static String NODE_AIRLINES = "airlines"; //$NON-NLS-1$
 	public final static String NODE_NAME ="airline"; //$NON-NLS-1$
 	public final static String ATTR_NAME = "name"; //$NON-NLS-1$
 	
+	private final static Registry<Airline> REGISTRY = new Registry<>(Airline::new);
+	
+	private final int id;
 	private String name;
 	
+	private Airline(int id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+	
 	/**
-	 * Constructor of Airline
+	 * Get the airline of a name, it is created if no living airline has the name
 	 * @param name name of the airline
+	 * @return the airline of the name or null if the name is null
 	 */
-	public Airline(String name) {
-		this.name = name;
+	public static Airline valueOf(String name) {
+		return name == null ? null : REGISTRY.valueOf(name);
+	}
+	
+	/**
+	 * Getter for the number of airline ids, ids are below it, the ids of the collected airlines are reused
+	 * @return number of ids
+	 */
+	public static int count() {
+		return REGISTRY.count();
+	}
+	
+	/**
+	 * Getter for the dense id of the airline
+	 * @return id of the airline
+	 */
+	public int getId() {
+		return this.id;
 	}
 	
 	/**
@@ -32,36 +61,21 @@ public class Airline {
 	/**
 	 * Setter for the name of airline
 	 * 
-	 * @param name does nothingif null
+	 * @param name does nothing if blank or an other airline has this name
 	 */
-	public void setName(String name) {
-		if (!StringUtils.isBlank(name))
+	public synchronized void setName(String name) {
+		if (!StringUtils.isBlank(name) && REGISTRY.rename(this, this.id, this.name, name))
 			this.name = name;
 	}
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((this.name == null) ? 0 : this.name.hashCode());
-		return result;
+		return this.id;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
-		if (this == obj)
-			return true;
-		if (obj == null)
-			return false;
-		if (getClass() != obj.getClass())
-			return false;
-		Airline other = (Airline) obj;
-		if (this.name == null) {
-			if (other.name != null)
-				return false;
-		} else if (!this.name.equals(other.name))
-			return false;
-		return true;
+		return this == obj;
 	}
 	
 	@Override
@@ -1,12 +1,26 @@
 package com.zamek.flight;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.HashMap;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalTime;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -16,6 +30,8 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
+import com.zamek.flight.factory.LoaderType;
+
 /**
  *  Task:
  * 
@@ -39,11 +55,21 @@ import org.apache.commons.cli.ParseException;
  *  <ul>
  *      <li>--airline &lt;arg&gt;       With airline</li>
         <li>--airlines            Show airlines</li>
+        <li>--allpairs            Precompute the paths between all cities</li>
+        <li>--batch &lt;FILENAME|-&gt; Answer the source,destination[,airline] route queries of a file, or of the standard input with -</li>
         <li>--cities              Show cities</li>
         <li>-d                    Default task: find path between city of lowest population and city of highest population</li>
+        <li>--connection &lt;MINUTES&gt; Minimum connection time for --earliest</li>
         <li>--destination &lt;arg&gt;   Set destination</li>
+        <li>--earliest            Find the earliest arrival instead of the shortest path</li>
         <li>--flights             Show flights</li>
+        <li>--format &lt;csv|json&gt;  Format of the answers of --batch, default csv</li>
+        <li>--loader &lt;sax|stax|parallel&gt; Loader of the XML file, stax streams large files, parallel parses the airlines on all cores</li>
+        <li>--no-validate         Skip the schema validation of a trusted XML file</li>
+        <li>--server &lt;PORT&gt;       Serve the route, cities, airlines and flights queries over http on a port and reload the changed XML file</li>
+        <li>--snapshot &lt;FILENAME&gt; Binary snapshot of the loaded data, used instead of the XML file while it is up to date</li>
         <li>--source &lt;arg&gt;        Set source</li>
+        <li>--threads &lt;COUNT&gt;     Number of the worker threads of --server, default the number of processors</li>
         <li>--xml &lt;FILENAME&gt;      Name of the XML file</li>
 	</ul>
  *
@@ -51,6 +77,8 @@ import org.apache.commons.cli.ParseException;
 public class App {
 	private final static String APP_NAME = "Flight"; //$NON-NLS-1$
 	private final static String COMMAND_LINE_SYNTAX = "java -jar " + APP_NAME + ".jar"; //$NON-NLS-1$ //$NON-NLS-2$
+	private final static int SUGGESTIONS = 5;
+	private final static String STDIN = "-"; //$NON-NLS-1$
 
 	/**
 	 * Construct and provide GNU-compatible Options.
@@ -92,6 +120,53 @@ public class App {
 				.hasArg()
 				.required(false).build();
 
+		final Option earliestOption = Option.builder().longOpt(Messages.getString("App.optEarliest")) //$NON-NLS-1$
+				.desc(Messages.getString("App.optEarliestDetail")) //$NON-NLS-1$
+				.required(false).build();
+
+		final Option connectionOption = Option.builder().longOpt(Messages.getString("App.optConnection")) //$NON-NLS-1$
+				.desc(Messages.getString("App.optConnectionDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("App.optConnectionName")) //$NON-NLS-1$
+				.required(false).build();
+
+		final Option allPairsOption = Option.builder().longOpt(Messages.getString("App.optAllPairs")) //$NON-NLS-1$
+				.desc(Messages.getString("App.optAllPairsDetail")) //$NON-NLS-1$
+				.required(false).build();
+
+		final Option noValidateOption = Option.builder().longOpt(Messages.getString("App.optNoValidate")) //$NON-NLS-1$
+				.desc(Messages.getString("App.optNoValidateDetail")) //$NON-NLS-1$
+				.required(false).build();
+
+		final Option loaderOption = Option.builder().longOpt(Messages.getString("App.optLoader")) //$NON-NLS-1$
+				.desc(Messages.getString("App.optLoaderDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("App.optLoaderName")) //$NON-NLS-1$
+				.required(false).build();
+
+		final Option snapshotOption = Option.builder().longOpt(Messages.getString("App.optSnapshot")) //$NON-NLS-1$
+				.desc(Messages.getString("App.optSnapshotDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("App.optSnapshotName")) //$NON-NLS-1$
+				.required(false).build();
+
+		final Option batchOption = Option.builder().longOpt(Messages.getString("App.optBatch")) //$NON-NLS-1$
+				.desc(Messages.getString("App.optBatchDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("App.optBatchName")) //$NON-NLS-1$
+				.required(false).build();
+
+		final Option formatOption = Option.builder().longOpt(Messages.getString("App.optFormat")) //$NON-NLS-1$
+				.desc(Messages.getString("App.optFormatDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("App.optFormatName")) //$NON-NLS-1$
+				.required(false).build();
+
+		final Option serverOption = Option.builder().longOpt(Messages.getString("App.optServer")) //$NON-NLS-1$
+				.desc(Messages.getString("App.optServerDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("App.optServerName")) //$NON-NLS-1$
+				.required(false).build();
+
+		final Option threadsOption = Option.builder().longOpt(Messages.getString("App.optThreads")) //$NON-NLS-1$
+				.desc(Messages.getString("App.optThreadsDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("App.optThreadsName")) //$NON-NLS-1$
+				.required(false).build();
+
 		final Option defaultOption = Option.builder(Messages.getString("App.optDefault")) //$NON-NLS-1$
 				.required(false).hasArg(false).desc(Messages.getString("App.optDefaultDetail")) //$NON-NLS-1$
 				.build();
@@ -103,6 +178,16 @@ public class App {
 		options.addOption(sourceOption);
 		options.addOption(destOption);
 		options.addOption(airlineOptions);
+		options.addOption(earliestOption);
+		options.addOption(connectionOption);
+		options.addOption(allPairsOption);
+		options.addOption(noValidateOption);
+		options.addOption(loaderOption);
+		options.addOption(snapshotOption);
+		options.addOption(batchOption);
+		options.addOption(formatOption);
+		options.addOption(serverOption);
+		options.addOption(threadsOption);
 		options.addOption(defaultOption);
 		return options;
 	}
@@ -114,23 +199,96 @@ public class App {
 	 * @param source Source city name
 	 * @param dest Destination city name 
 	 * @param airline name of the airline
+	 * @param minConnection find the earliest arrival with this minimum connection time if not null, or the shortest path if null
 	 */
-	private static void findPath(String source, String dest, String airline) {
+	private static void findPath(String source, String dest, String airline, Duration minConnection) {
 		Data d = Data.getInstance();
 		Optional<City> os = d.findCity(source);
 		if (!os.isPresent()) {
 			System.out.println(Messages.getString("App.cityNotFound", source)); //$NON-NLS-1$
+			printSuggestions(d, source);
 			return;
 		}
 
 		Optional<City> od = d.findCity(dest);
 		if (!od.isPresent()) {
 			System.out.println(Messages.getString("App.cityNotFound", dest)); //$NON-NLS-1$
+			printSuggestions(d, dest);
 			return;
 		}
 
 		Optional<Airline> oa = d.findAirline(airline);
-		Data.printPath(os.get(), od.get(), Data.findPath(os.get(), od.get(), oa.isPresent() ? oa.get() : null));
+		if (minConnection != null)
+			Data.printPath(os.get(), od.get(), Data.findEarliestPath(os.get(), od.get(), oa.isPresent() ? oa.get() : null, LocalTime.MIDNIGHT, minConnection));
+		else
+			Data.printPath(os.get(), od.get(), Data.findPointToPointPath(os.get(), od.get(), oa.isPresent() ? oa.get() : null));
+	}
+
+	/**
+	 * Print the cities with the longest common beginning of a not found name
+	 * 
+	 * @param d the data
+	 * @param name the not found name
+	 */
+	private static void printSuggestions(Data d, String name) {
+		for (int length = name.length(); length > 0; --length) {
+			List<City> cities = d.completeCity(name.substring(0, length), SUGGESTIONS);
+			if (!cities.isEmpty()) {
+				System.out.println(Messages.getString("App.didYouMean", //$NON-NLS-1$
+						cities.stream().map(City::getName).collect(Collectors.joining(", ")))); //$NON-NLS-1$
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Answer the route queries of a file or of the standard input on the standard output
+	 * 
+	 * @param fileName name of the file of the queries, - for the standard input
+	 * @param format format of the answers
+	 * @throws IOException if the queries cannot be read or the answers cannot be written
+	 */
+	private static void runBatch(String fileName, BatchRunner.Format format) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+		BatchRunner runner = new BatchRunner(Data.getInstance(), format, ForkJoinPool.commonPool());
+		if (STDIN.equals(fileName))
+			runner.run(new InputStreamReader(System.in, StandardCharsets.UTF_8), out);
+		else
+			try (Reader in = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+				runner.run(in, out);
+			}
+	}
+
+	/**
+	 * Serve the queries over http until the application is stopped, the changed XML file is reloaded meanwhile
+	 * 
+	 * @param port port of the server
+	 * @param threads number of the worker threads
+	 * @param xmlFile name of the loaded XML file
+	 * @param validate validate the reloaded XML file
+	 * @param loader loader of the reloaded XML file
+	 * @throws IOException if the server cannot be started or the XML file cannot be watched
+	 */
+	private static void serve(int port, int threads, String xmlFile, boolean validate, LoaderType loader) throws IOException {
+		QueryServer server = new QueryServer(Data.getInstance(), new InetSocketAddress(port), threads);
+		FlightsWatcher watcher;
+		try {
+			watcher = Data.getInstance().watch(xmlFile, validate, loader);
+		}
+		catch (IOException | RuntimeException e) {
+			server.close();
+			throw e;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.close();
+			try {
+				watcher.close();
+			}
+			catch (IOException e) {
+				// stopping
+			}
+		}));
+		server.start();
 	}
 
 	/**
@@ -140,16 +298,12 @@ public class App {
 	 */
 	private static void doDefault() {
 		System.out.println(Messages.getString("App.optDefaultSelected")); //$NON-NLS-1$
-		Optional<City> min = Data.getInstance().getCities().stream()
-				.min((a, b) -> a.getPopulation() - b.getPopulation());
-		Optional<City> max = Data.getInstance().getCities().stream()
-				.max((a, b) -> a.getPopulation() - b.getPopulation());
-		Map<Airline, LinkedList<Flight>> paths = new HashMap<>();
-		for (Airline al : Data.getInstance().getAirlines()) {
-			LinkedList<Flight> path = Data.findPath(min.get(), max.get(), al);
-			if (path != null)
-				paths.put(al, path);
-		}
+		Data d = Data.getInstance();
+		Optional<City> min = d.getCities().stream()
+				.min((a, b) -> d.getPopulation(a) - d.getPopulation(b));
+		Optional<City> max = d.getCities().stream()
+				.max((a, b) -> d.getPopulation(a) - d.getPopulation(b));
+		Map<Airline, LinkedList<Flight>> paths = Data.findPathsByAirline(min.get(), max.get());
 		if (paths.isEmpty())
 			Data.printPath(min.get(), max.get(), Data.findPath(min.get(), max.get(), null));
 		else
@@ -171,14 +325,45 @@ public class App {
 		try {
 			commandLine = cmdLineGnuParser.parse(gnuOptions, commandLineArguments);
 			String xmlFile = null;
+			if (commandLine.hasOption(Messages.getString("App.optAllPairs"))) //$NON-NLS-1$
+				Data.getInstance().setAllPairs(true);
+
+			LoaderType loader = LoaderType.valueOf(commandLine.getOptionValue(Messages.getString("App.optLoader"), LoaderType.SAX.name()).toUpperCase(Locale.ROOT)); //$NON-NLS-1$
+			boolean validate = !commandLine.hasOption(Messages.getString("App.optNoValidate")); //$NON-NLS-1$
 			if (commandLine.hasOption(Messages.getString("App.optXML"))) { //$NON-NLS-1$
 				xmlFile = commandLine.getOptionValue(Messages.getString("App.optXML")); //$NON-NLS-1$
-				Data.getInstance().load(xmlFile);
+				if (commandLine.hasOption(Messages.getString("App.optSnapshot"))) //$NON-NLS-1$
+					Data.getInstance().load(xmlFile, validate, loader, commandLine.getOptionValue(Messages.getString("App.optSnapshot"))); //$NON-NLS-1$
+				else
+					Data.getInstance().load(xmlFile, validate, loader);
+			}
+
+			if (commandLine.hasOption(Messages.getString("App.optServer"))) { //$NON-NLS-1$
+				int port = Integer.parseInt(commandLine.getOptionValue(Messages.getString("App.optServer"))); //$NON-NLS-1$
+				int threads = Integer.parseInt(commandLine.getOptionValue(Messages.getString("App.optThreads"), String.valueOf(QueryServer.DEFAULT_THREADS))); //$NON-NLS-1$
+				try {
+					serve(port, threads, xmlFile, validate, loader);
+				}
+				catch (IOException e) {
+					System.err.println(Messages.getString("App.serverException") + e.getMessage()); //$NON-NLS-1$
+				}
+				return;
+			}
+
+			if (commandLine.hasOption(Messages.getString("App.optBatch"))) { //$NON-NLS-1$
+				BatchRunner.Format format = BatchRunner.Format.valueOf(commandLine.getOptionValue(Messages.getString("App.optFormat"), BatchRunner.Format.CSV.name()).toUpperCase(Locale.ROOT)); //$NON-NLS-1$
+				try {
+					runBatch(commandLine.getOptionValue(Messages.getString("App.optBatch")), format); //$NON-NLS-1$
+				}
+				catch (IOException e) {
+					System.err.println(Messages.getString("App.batchException") + e.getMessage()); //$NON-NLS-1$
+				}
+				return;
 			}
 
 			if (commandLine.hasOption(Messages.getString("App.optCities"))) { //$NON-NLS-1$
 				System.out.println(Messages.getString("App.optCitiesSelected")); //$NON-NLS-1$
-				Data.getInstance().getCities().stream().forEach(c -> System.out.println(c));
+				Data.getInstance().getCities().stream().forEach(c -> System.out.println(Data.getInstance().format(c)));
 				return;
 			}
 
@@ -210,7 +395,10 @@ public class App {
 						System.out.println(" "+Messages.getString("App.optAirlineSelected", airline)); //$NON-NLS-1$ //$NON-NLS-2$
 					} else
 						System.out.println();
-					findPath(source, dest, airline);
+					Duration minConnection = null;
+					if (commandLine.hasOption(Messages.getString("App.optEarliest"))) //$NON-NLS-1$
+						minConnection = Duration.ofMinutes(Long.parseLong(commandLine.getOptionValue(Messages.getString("App.optConnection"), "0"))); //$NON-NLS-1$ //$NON-NLS-2$
+					findPath(source, dest, airline, minConnection);
 					return;
 				}
 			}
@@ -221,6 +409,8 @@ public class App {
 			usage();
 		} catch (ParseException parseException) { // checked exception
 			System.err.println(Messages.getString("App.parseException") + parseException.getMessage()); //$NON-NLS-1$
+		} catch (IllegalArgumentException argumentException) { // wrong number or loader
+			System.err.println(Messages.getString("App.parseException") + argumentException.getMessage()); //$NON-NLS-1$
 		}
 	}
 
@@ -0,0 +1,269 @@
+package com.zamek.flight;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.zamek.flight.dijkstra.DijkstraEngine;
+import com.zamek.flight.dijkstra.GraphIndex;
+import com.zamek.flight.dijkstra.Metric;
+import com.zamek.flight.util.HasLogger;
+import com.zamek.flight.util.Json;
+
+/**
+ * Batch of route queries.
+ *
+ * Every line of the input is a <code>source,destination[,airline]</code> query, empty lines and lines starting
+ * with # are skipped. The queries of the same source and airline are answered from one shortest path search,
+ * the searches run on a fork join pool with the pooled engines of the index. The answers are written as soon as
+ * the queries of a source are answered, so their order is not the order of the input, every answer has the
+ * line number of its query.
+ *
+ * @author zamek
+ *
+ */
+public class BatchRunner implements HasLogger {
+	private final static String COMMENT = "#"; //$NON-NLS-1$
+	private final static String SEPARATOR = ","; //$NON-NLS-1$
+
+	/**
+	 * Formats of the answers
+	 */
+	public enum Format {
+		/**
+		 * Comma separated values with a header line
+		 */
+		CSV,
+
+		/**
+		 * A json object in every line
+		 */
+		JSON
+	}
+
+	/**
+	 * Results of a query
+	 */
+	public enum Status {
+		OK, NO_PATH, UNKNOWN_SOURCE, UNKNOWN_DESTINATION, UNKNOWN_AIRLINE, INVALID
+	}
+
+	/**
+	 * A query of the batch
+	 */
+	private static class Query {
+		final int line;
+		final String[] fields;
+		City source;
+		City destination;
+		Airline airline;
+		Status status = Status.OK;
+
+		Query(int line, String[] fields) {
+			this.line = line;
+			this.fields = fields;
+		}
+
+		String field(int i) {
+			return i < this.fields.length ? this.fields[i] : null;
+		}
+	}
+
+	/**
+	 * Queries with the same source and airline
+	 */
+	private static class Group {
+		final City source;
+		final Airline airline;
+
+		Group(City source, Airline airline) {
+			this.source = source;
+			this.airline = airline;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.source, this.airline);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			Group other = (Group) obj;
+			return this.source == other.source && this.airline == other.airline;
+		}
+	}
+
+	private final Data data;
+	private final Format format;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor of the batch runner
+	 *
+	 * @param data the loaded data
+	 * @param format format of the answers
+	 * @param pool runs the searches
+	 */
+	public BatchRunner(Data data, Format format, ForkJoinPool pool) {
+		this.data = data;
+		this.format = format;
+		this.pool = pool;
+	}
+
+	/**
+	 * Answer the queries of an input
+	 *
+	 * @param in the queries
+	 * @param out the answers, it is flushed at the end
+	 * @return number of the queries
+	 * @throws IOException if the input cannot be read or the answers cannot be written
+	 */
+	public int run(Reader in, Writer out) throws IOException {
+		long start = System.nanoTime();
+		List<Query> invalid = new ArrayList<>();
+		Map<Group, List<Query>> groups = new LinkedHashMap<>();
+		int count = 0;
+		BufferedReader reader = new BufferedReader(in);
+		String line;
+		for (int number = 1; (line = reader.readLine()) != null; ++number) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith(COMMENT))
+				continue;
+
+			Query q = resolve(new Query(number, line.split(SEPARATOR, -1)));
+			++count;
+			if (q.status != Status.OK)
+				invalid.add(q);
+			else
+				groups.computeIfAbsent(new Group(q.source, q.airline), g -> new ArrayList<>()).add(q);
+		}
+
+		if (this.format == Format.CSV)
+			out.write("line,source,destination,airline,status,distance,flights\n"); //$NON-NLS-1$
+		StringBuilder answers = new StringBuilder();
+		for (Query q : invalid)
+			append(answers, q, null);
+		out.write(answers.toString());
+
+		// every search of the batch uses the same index, even if the data is reloaded meanwhile
+		GraphIndex index = this.data.getIndex();
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(groups.size());
+		for (Map.Entry<Group, List<Query>> e : groups.entrySet())
+			tasks.add(this.pool.submit(() -> write(out, index.withDijkstra(de -> answer(de, e.getKey(), e.getValue())))));
+		try {
+			for (ForkJoinTask<?> task : tasks)
+				task.join();
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		out.flush();
+		getLogger().info(String.format("%d queries answered by %d searches in %d ms", Integer.valueOf(count), //$NON-NLS-1$
+				Integer.valueOf(groups.size()), Long.valueOf((System.nanoTime() - start) / 1000000)));
+		return count;
+	}
+
+	private Query resolve(Query q) {
+		if (q.fields.length < 2 || q.fields.length > 3) {
+			q.status = Status.INVALID;
+			return q;
+		}
+		Optional<City> source = this.data.findCity(q.fields[0].trim());
+		Optional<City> destination = this.data.findCity(q.fields[1].trim());
+		String airlineName = q.fields.length > 2 ? q.fields[2].trim() : ""; //$NON-NLS-1$
+		Optional<Airline> airline = this.data.findAirline(airlineName);
+		if (!source.isPresent())
+			q.status = Status.UNKNOWN_SOURCE;
+		else if (!destination.isPresent())
+			q.status = Status.UNKNOWN_DESTINATION;
+		else if (!airlineName.isEmpty() && !airline.isPresent())
+			q.status = Status.UNKNOWN_AIRLINE;
+		q.source = source.orElse(null);
+		q.destination = destination.orElse(null);
+		q.airline = airline.orElse(null);
+		return q;
+	}
+
+	private String answer(DijkstraEngine engine, Group group, List<Query> queries) {
+		engine.execute(group.source, group.airline, Metric.DISTANCE);
+		StringBuilder answers = new StringBuilder();
+		for (Query q : queries) {
+			LinkedList<Flight> path = engine.getPath(q.destination, group.airline);
+			if (path == null)
+				q.status = Status.NO_PATH;
+			append(answers, q, path);
+		}
+		return answers.toString();
+	}
+
+	private static void write(Writer out, String answers) {
+		try {
+			synchronized (out) {
+				out.write(answers);
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void append(StringBuilder answers, Query q, List<Flight> path) {
+		int distance = 0;
+		List<String> ids = new ArrayList<>();
+		if (path != null)
+			for (Flight f : path) {
+				distance += f.getDistance();
+				ids.add(f.getId());
+			}
+		String source = q.source == null ? q.field(0) : q.source.getName();
+		String destination = q.destination == null ? q.field(1) : q.destination.getName();
+		String airline = q.airline == null ? q.field(2) : q.airline.getName();
+		if (this.format == Format.CSV) {
+			answers.append(q.line).append(',');
+			appendCsv(answers, source).append(',');
+			appendCsv(answers, destination).append(',');
+			appendCsv(answers, airline).append(',');
+			answers.append(q.status).append(',');
+			if (path != null)
+				answers.append(distance);
+			answers.append(',');
+			appendCsv(answers, String.join(" ", ids)).append('\n'); //$NON-NLS-1$
+			return;
+		}
+		answers.append("{\"line\":").append(q.line).append(",\"source\":"); //$NON-NLS-1$ //$NON-NLS-2$
+		Json.appendString(answers, source).append(",\"destination\":"); //$NON-NLS-1$
+		Json.appendString(answers, destination).append(",\"airline\":"); //$NON-NLS-1$
+		Json.appendString(answers, airline).append(",\"status\":\"").append(q.status).append('"'); //$NON-NLS-1$
+		if (path != null) {
+			answers.append(",\"distance\":").append(distance).append(",\"flights\":["); //$NON-NLS-1$ //$NON-NLS-2$
+			for (int i = 0; i < ids.size(); ++i)
+				Json.appendString(i == 0 ? answers : answers.append(','), ids.get(i));
+			answers.append(']');
+		}
+		answers.append("}\n"); //$NON-NLS-1$
+	}
+
+	private static StringBuilder appendCsv(StringBuilder sb, String value) {
+		if (value == null)
+			return sb;
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+			return sb.append(value);
+
+		return sb.append('"').append(value.replace("\"", "\"\"")).append('"'); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
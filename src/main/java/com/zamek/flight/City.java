@@ -4,22 +4,50 @@ import org.apache.commons.lang3.StringUtils;
 /**
  * City of flights
  * 
+ * Cities are interned by their names, every name has one living city with a dense id,
+ * so cities are equal only to themselves. A city is shared by every load and released when no load
+ * refers to it. The population and coordinates of a load are in its {@link FlightTable}, so a city
+ * has no public constructor and no population setter, and its string form is its name,
+ * see {@link Data#format(City)} for the name with the population.
+ * 
  * @author zamek
  *
  */
 public class City {
 
+	private final static Registry<City> REGISTRY = new Registry<>(City::new);
+	
+	private final int id;
 	private String name;
-	private int population;
+	
+	private City(int id, String name) {
+		this.id = id;
+		this.name = name;
+	}
 	
 	/**
-	 * Constructor for city 
+	 * Get the city of a name, it is created if no living city has the name
 	 * @param name name of the city
-	 * @param population population of the city
+	 * @return the city of the name or null if the name is null
 	 */
-	public City(String name, int population) {
-		this.name = name;
-		this.population = population;
+	public static City valueOf(String name) {
+		return name == null ? null : REGISTRY.valueOf(name);
+	}
+	
+	/**
+	 * Getter for the number of city ids, ids are below it, the ids of the collected cities are reused
+	 * @return number of ids
+	 */
+	public static int count() {
+		return REGISTRY.count();
+	}
+	
+	/**
+	 * Getter for the dense id of the city
+	 * @return id of the city
+	 */
+	public int getId() {
+		return this.id;
 	}
 
 	/**
@@ -31,62 +59,37 @@ public class City {
 	}
 
 	/**
-	 * Setter for name of the city
-	 * @param name name of the city
-	 */
-	public void setName(String name) {
-		if (!StringUtils.isBlank(name))
-			this.name = name;
-	}
-
-	/**
-	 * Getter for population
-	 * @return population
+	 * Getter for the population of the city in the loaded data
+	 * @return population or 0 if it is unknown
+	 * @deprecated the population belongs to a load, use {@link Data#getPopulation(City)}
 	 */
+	@Deprecated
 	public int getPopulation() {
-		return this.population;
+		return Data.getInstance().getPopulation(this);
 	}
 
 	/**
-	 * Setter for population 
-	 * @param population cannot be negative
+	 * Setter for name of the city
+	 * @param name name of the city, does nothing if blank or an other city has this name
 	 */
-	public void setPopulation(int population) {
-		if (population>=0)
-			this.population = population;
+	public synchronized void setName(String name) {
+		if (!StringUtils.isBlank(name) && REGISTRY.rename(this, this.id, this.name, name))
+			this.name = name;
 	}
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((this.name == null) ? 0 : this.name.hashCode());
-		result = prime * result + this.population;
-		return result;
+		return this.id;
 	}
 	
 	@Override
 	public boolean equals(Object obj) {
-		if (this == obj)
-			return true;
-		if (obj == null)
-			return false;
-		if (getClass() != obj.getClass())
-			return false;
-		City other = (City) obj;
-		if (this.name == null) {
-			if (other.name != null)
-				return false;
-		} else if (!this.name.equals(other.name))
-			return false;
-		if (this.population != other.population)
-			return false;
-		return true;
+		return this == obj;
 	}
 	
 	@Override
 	public String toString() {
-		return String.format("%s (%d)", this.name, Integer.valueOf(this.population)); //$NON-NLS-1$
+		return this.name;
 	}
 
 	
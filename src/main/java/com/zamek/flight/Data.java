@@ -1,45 +1,142 @@
 package com.zamek.flight;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
-import com.zamek.flight.dijkstra.DijkstraEngine;
+import com.zamek.flight.dijkstra.AllPairsTable;
 import com.zamek.flight.dijkstra.Graph;
+import com.zamek.flight.dijkstra.GraphIndex;
+import com.zamek.flight.dijkstra.Metric;
+import com.zamek.flight.dijkstra.ShortestPathTree;
+import com.zamek.flight.dijkstra.TreeCache;
+import com.zamek.flight.factory.LoaderType;
+import com.zamek.flight.factory.SnapshotFile;
 import com.zamek.flight.factory.XMLFactory;
+import com.zamek.flight.util.HasLogger;
 
 /**
  * Singleton for data
- * 
+ *
+ * The loaded data is an immutable {@link Snapshot}. A load builds the new snapshot aside and publishes
+ * it atomically, so readers never lock and every read of a snapshot sees the same feed. Loads are
+ * serialized by the lock of the instance.
+ *
  * @author zamek
  *
  */
-public class Data implements Graph {
-
+public class Data implements Graph, HasLogger {
+	
 	private final static DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm"); //$NON-NLS-1$
-	private static Data instance;
-	private List<City> cities=Collections.emptyList();
-	private Set<Airline> airlines=Collections.emptySet();
-	private List<Flight> flights=Collections.emptyList();
+	private final static long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+	private final static Data instance = new Data();
+	private final AtomicReference<Snapshot> current;
+	private volatile long cacheSize = DEFAULT_CACHE_SIZE;
+	private boolean allPairsMode;
 	
-	private Data() {
+	/**
+	 * Immutable state of a load: the cities, airlines and flights with their indexes,
+	 * the cached shortest path trees and the all-pairs table of them
+	 */
+	private static class Snapshot implements Graph {
+		final List<City> cities;
+		final Set<Airline> airlines;
+		final List<Flight> flights;
+		final FlightTable table;
+		final NameIndex<City> cityNames;
+		final NameIndex<Airline> airlineNames;
+		final GraphIndex index;
+		final TreeCache trees;
+		final AllPairsTable allPairs;
+		
+		/**
+		 * Build a snapshot
+		 * 
+		 * @param table flights in columnar form, it becomes read only
+		 * @param cities the cities
+		 * @param airlines all airlines
+		 * @param flights views of the rows of the table
+		 * @param offsets prebuilt adjacency of all airlines or null to build it, see {@link GraphIndex}
+		 * @param targets destination city of every edge
+		 * @param order index in the flights of every edge
+		 * @param trees cache of the trees, its trees must be valid for the flights
+		 */
+		Snapshot(FlightTable table, List<City> cities, Set<Airline> airlines, List<Flight> flights,
+				 int[] offsets, int[] targets, int[] order, TreeCache trees) {
+			table.freeze();
+			this.table = table;
+			this.cities = cities;
+			this.airlines = airlines;
+			this.flights = flights;
+			this.cityNames = new NameIndex<>(cities, City::getName, c -> {
+				int id = table.indexOf(c);
+				return id == FlightTable.NONE ? null : table.getAsciiName(id);
+			});
+			this.airlineNames = NameIndex.of(airlines, Airline::getName);
+			this.index = new GraphIndex(this, offsets, targets, order);
+			this.trees = trees;
+			this.allPairs = null;
+		}
+		
+		/**
+		 * Copy a snapshot with an other all-pairs table
+		 */
+		Snapshot(Snapshot snapshot, AllPairsTable allPairs) {
+			this.table = snapshot.table;
+			this.cities = snapshot.cities;
+			this.airlines = snapshot.airlines;
+			this.flights = snapshot.flights;
+			this.cityNames = snapshot.cityNames;
+			this.airlineNames = snapshot.airlineNames;
+			this.index = snapshot.index;
+			this.trees = snapshot.trees;
+			this.allPairs = allPairs;
+		}
+		
+		@Override
+		public List<City> getCities() {
+			return this.cities;
+		}
 		
+		@Override
+		public List<Flight> getFlights() {
+			return this.flights;
+		}
+		
+		@Override
+		public FlightTable getFlightTable() {
+			return this.table;
+		}
+		
+		@Override
+		public GraphIndex getIndex() {
+			return this.index;
+		}
+	}
+	
+	private Data() {
+		FlightTable empty = new FlightTable();
+		this.current = new AtomicReference<>(new Snapshot(empty, empty.getCities(), Collections.<Airline>emptySet(),
+				Collections.<Flight>emptyList(), null, null, null, new TreeCache(this.cacheSize)));
 	}
 	
 	/**
 	 * Get an instance for the data
 	 * @return  instance of the singleton
 	 */
-	public synchronized static Data getInstance() {
-		if (instance==null)
-			instance = new Data();
-		
+	public static Data getInstance() {
 		return instance;
 	}
 	
@@ -48,13 +145,248 @@ public class Data implements Graph {
 	 * 
 	 * @param xmlName name of the xml file
 	 */
-	public synchronized void load(String xmlName) {
-		XMLFactory factory = new XMLFactory(xmlName);
+	public void load(String xmlName) {
+		load(xmlName, true);
+	}
+	
+	/**
+	 * Load flight data from an xml file
+	 * 
+	 * @param xmlName name of the xml file
+	 * @param validate validate the xml against the schema, can be false for trusted feeds
+	 */
+	public void load(String xmlName, boolean validate) {
+		load(xmlName, validate, LoaderType.SAX);
+	}
+	
+	/**
+	 * Load flight data from an xml file
+	 * 
+	 * @param xmlName name of the xml file
+	 * @param validate validate the xml against the schema, can be false for trusted feeds
+	 * @param loader loader of the xml file
+	 * @return true if the xml and the population database are loaded without errors and there is any flight
+	 */
+	public synchronized boolean load(String xmlName, boolean validate, LoaderType loader) {
+		XMLFactory factory = loader.create(xmlName, validate);
 		factory.loadPopulation();
 		factory.loadXml();
-		this.cities = factory.getCities();
-		this.airlines = factory.getAirlines();
-		this.flights = factory.getFlights();
+		publish(new Snapshot(factory.getFlightTable(), factory.getCities(), factory.getAirlines(), factory.getFlights(),
+							 null, null, null, new TreeCache(this.cacheSize)));
+		return !factory.hasErrors() && factory.hasPopulation() && !factory.getFlights().isEmpty();
+	}
+	
+	/**
+	 * Load flight data from a snapshot, or from an xml file if the snapshot is missing, corrupt or
+	 * older than the xml or the population file. The snapshot is written after a load of the xml without
+	 * errors, a partial or empty load is not cached.
+	 * 
+	 * @param xmlName name of the xml file
+	 * @param validate validate the xml against the schema, can be false for trusted feeds
+	 * @param loader loader of the xml file
+	 * @param snapshotName name of the snapshot file
+	 */
+	public synchronized void load(String xmlName, boolean validate, LoaderType loader, String snapshotName) {
+		try {
+			SnapshotFile file = SnapshotFile.open(snapshotName, getSources(xmlName));
+			if (file != null) {
+				FlightTable table = file.getFlightTable();
+				publish(new Snapshot(table, table.getCities(), file.getAirlines(), table.toList(),
+									 file.getOffsets(), file.getTargets(), file.getOrder(), new TreeCache(this.cacheSize)));
+				return;
+			}
+		}
+		catch (IOException | IllegalArgumentException e) {
+			getLogger().warn("Snapshot reading error:"+e.getMessage()); //$NON-NLS-1$
+		}
+		if (load(xmlName, validate, loader))
+			writeSnapshot(snapshotName, xmlName);
+		else
+			getLogger().warn(String.format("Snapshot of %s is not written, it is not loaded cleanly", xmlName)); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Load a changed xml file and publish the difference only.
+	 * 
+	 * Flights are compared by their ids to the loaded ones, a flight with a known id and other data
+	 * is changed. The data is published again if only the population, coordinates or ascii names
+	 * of the cities are changed. Cached trees are kept unless a removed or changed flight is part of them, or an added
+	 * or changed flight gives a shorter path in them. The kept trees are rebased onto the new index,
+	 * so the old index is released. The loaded data is kept if the xml cannot be loaded.
+	 * 
+	 * @param xmlName name of the xml file
+	 * @param validate validate the xml against the schema, can be false for trusted feeds
+	 * @param loader loader of the xml file
+	 * @return true if a new snapshot is published
+	 */
+	public synchronized boolean reload(String xmlName, boolean validate, LoaderType loader) {
+		XMLFactory factory = loader.create(xmlName, validate);
+		factory.loadPopulation();
+		factory.loadXml();
+		if (factory.hasErrors()) {
+			getLogger().warn(String.format("Reloading of %s is skipped", xmlName)); //$NON-NLS-1$
+			return false;
+		}
+		
+		Snapshot old = this.current.get();
+		List<Flight> flights = factory.getFlights();
+		List<Flight> removed = new ArrayList<>();
+		List<Flight> added = new ArrayList<>();
+		boolean unique = diff(old.flights, flights, removed, added);
+		if (unique && removed.isEmpty() && added.isEmpty() && old.airlines.equals(factory.getAirlines())
+				&& old.cities.equals(factory.getCities()) && old.table.hasSameCities(factory.getFlightTable()))
+			return false;
+		
+		TreeCache trees = new TreeCache(this.cacheSize);
+		Snapshot next = new Snapshot(factory.getFlightTable(), factory.getCities(), factory.getAirlines(), flights,
+									 null, null, null, trees);
+		if (unique)
+			trees.addAll(old.trees, next.index, t -> !t.isAffected(removed, added));
+		publish(next);
+		getLogger().info(String.format("Reloaded %s: %d flights removed, %d added, %d of %d cached trees kept", xmlName, //$NON-NLS-1$
+				Integer.valueOf(removed.size()), Integer.valueOf(added.size()), Integer.valueOf(trees.size()), Integer.valueOf(old.trees.size())));
+		return true;
+	}
+	
+	/**
+	 * Difference of two flight lists by the flight ids
+	 * 
+	 * @param before the old flights
+	 * @param after the new flights
+	 * @param removed flights of the old list missing or changed in the new one
+	 * @param added flights of the new list missing or changed in the old one
+	 * @return false if the ids are not unique, the difference is incomplete then
+	 */
+	private static boolean diff(List<Flight> before, List<Flight> after, List<Flight> removed, List<Flight> added) {
+		Map<String, Flight> olds = new HashMap<>(before.size() * 2);
+		for (Flight f : before)
+			if (olds.put(f.getId(), f) != null)
+				return false;
+		
+		Set<String> ids = new HashSet<>(after.size() * 2);
+		for (Flight f : after) {
+			if (!ids.add(f.getId()))
+				return false;
+			
+			Flight old = olds.remove(f.getId());
+			if (f.equals(old))
+				continue;
+			
+			if (old != null)
+				removed.add(old);
+			added.add(f);
+		}
+		removed.addAll(olds.values());
+		return true;
+	}
+	
+	/**
+	 * Watch an xml file and reload it when it is changed
+	 * 
+	 * @param xmlName name of the xml file
+	 * @param validate validate the xml against the schema, can be false for trusted feeds
+	 * @param loader loader of the xml file
+	 * @return the started watcher, closing it stops watching
+	 * @throws IOException if the directory of the file cannot be watched
+	 */
+	public FlightsWatcher watch(String xmlName, boolean validate, LoaderType loader) throws IOException {
+		FlightsWatcher watcher = new FlightsWatcher(xmlName, () -> reload(xmlName, validate, loader));
+		watcher.start();
+		return watcher;
+	}
+	
+	/**
+	 * Write a snapshot of the loaded flights
+	 * 
+	 * @param snapshotName name of the snapshot file
+	 * @param xmlName name of the xml file the flights are loaded from
+	 */
+	public void writeSnapshot(String snapshotName, String xmlName) {
+		Snapshot s = this.current.get();
+		try {
+			SnapshotFile.write(snapshotName, getSources(xmlName), s.table, s.airlines);
+		}
+		catch (IOException e) {
+			getLogger().error("Snapshot writing error:"+e.getMessage()); //$NON-NLS-1$
+		}
+	}
+	
+	private static String[] getSources(String xmlName) {
+		return new String[] { xmlName, XMLFactory.POPULATION_FILE };
+	}
+	
+	/**
+	 * Publish a new snapshot, the all-pairs table is built before publishing
+	 */
+	private void publish(Snapshot next) {
+		Snapshot published = this.allPairsMode ? withAllPairs(next) : next;
+		close(this.current.getAndSet(published).allPairs);
+	}
+	
+	/**
+	 * Switch the all-pairs mode. In this mode the shortest paths between all cities are precomputed
+	 * at every load and paths of all airlines are answered from the table.
+	 * 
+	 * @param enabled true to precompute the paths
+	 */
+	public synchronized void setAllPairs(boolean enabled) {
+		this.allPairsMode = enabled;
+		Snapshot s = this.current.get();
+		if (enabled == (s.allPairs != null))
+			return;
+		
+		publish(enabled ? s : new Snapshot(s, null));
+	}
+	
+	private Snapshot withAllPairs(Snapshot s) {
+		try {
+			return new Snapshot(s, new AllPairsTable(s.index, Metric.DISTANCE, ForkJoinPool.commonPool(), AllPairsTable.DEFAULT_HEAP_LIMIT));
+		}
+		catch (IOException e) {
+			getLogger().error("All-pairs precomputation error:"+e.getMessage()); //$NON-NLS-1$
+			return new Snapshot(s, null);
+		}
+	}
+	
+	private void close(AllPairsTable table) {
+		if (table == null)
+			return;
+		
+		try {
+			table.close();
+		}
+		catch (IOException e) {
+			getLogger().warn(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Set the size limit of the shortest path tree cache
+	 * 
+	 * @param bytes maximum estimated size of the cached trees
+	 */
+	public void setCacheSize(long bytes) {
+		this.cacheSize = bytes;
+		this.current.get().trees.setMaxFootprint(bytes);
+	}
+	
+	/**
+	 * Get the shortest path tree of a source city from the cache or compute it
+	 * 
+	 * @param source source city
+	 * @param airline optional, can be null if airline is not relevant
+	 * @param metric edge weight of the search
+	 * @return the shortest path tree of the source
+	 */
+	public ShortestPathTree getTree(City source, Airline airline, Metric metric) {
+		return getTree(this.current.get(), source, airline, metric);
+	}
+	
+	private static ShortestPathTree getTree(Snapshot s, City source, Airline airline, Metric metric) {
+		return s.trees.get(source, airline, metric, () -> s.index.withDijkstra(de -> {
+			de.execute(source, airline, metric);
+			return de.getTree();
+		}));
 	}
 	
 	/**
@@ -64,26 +396,70 @@ public class Data implements Graph {
 	 */
 	@Override
 	public List<City> getCities() {
-		return this.cities;
+		return this.current.get().cities;
 	}
-
+	
+	/**
+	 * Get the population of a city in the loaded data
+	 * 
+	 * @param city the city
+	 * @return population of the city or 0 if it is not loaded
+	 */
+	public int getPopulation(City city) {
+		FlightTable table = this.current.get().table;
+		int id = table.indexOf(city);
+		return id == FlightTable.NONE ? 0 : table.getPopulation(id);
+	}
+	
+	/**
+	 * Format a city with its population in the loaded data
+	 * 
+	 * @param city the city
+	 * @return name and population of the city
+	 */
+	public String format(City city) {
+		return String.format("%s (%d)", city.getName(), Integer.valueOf(getPopulation(city))); //$NON-NLS-1$
+	}
+	
 	/**
 	 * Get a list of airlines
 	 * 
 	 * @return list of airlines
 	 */
 	public Set<Airline> getAirlines() {
-		return this.airlines;
+		return this.current.get().airlines;
 	}
 	
 	/**
 	 * Get a flight list of an airline
 	 * 
+	 * The lists are partitioned at load time
+	 * 
 	 * @param airline airline
-	 * @return the list ot the flights of an airline
+	 * @return unmodifiable list ot the flights of an airline in the order of loading
 	 */
 	public List<Flight> getFlightOfAirline(Airline airline) {
-		return this.flights.stream().filter(f->f.getAirline().equals(airline)).parallel().collect(Collectors.toList());
+		return this.current.get().index.getFlights(airline);
+	}
+	
+	/**
+	 * Get the flights departing from a city
+	 * 
+	 * @param city origin of the flights
+	 * @return unmodifiable list of the flights of all airlines in the order of loading
+	 */
+	public List<Flight> getFlightsFrom(City city) {
+		return this.current.get().index.getFlightsFrom(city);
+	}
+	
+	/**
+	 * Get the flights arriving to a city
+	 * 
+	 * @param city destination of the flights
+	 * @return unmodifiable list of the flights of all airlines in the order of loading
+	 */
+	public List<Flight> getFlightsTo(City city) {
+		return this.current.get().index.getFlightsTo(city);
 	}
 	
 	/**
@@ -93,23 +469,56 @@ public class Data implements Graph {
 	 */
 	@Override
 	public List<Flight> getFlights() {
-		return this.flights;
+		return this.current.get().flights;
 	}
-
+	
 	/**
-	 * Find a city in the cities list. 
+	 * Get the loaded flights in columnar form
 	 * 
-	 * Search with ignore cases
+	 * @return table of the flights
+	 */
+	@Override
+	public FlightTable getFlightTable() {
+		return this.current.get().table;
+	}
+	
+	/**
+	 * Get the adjacency index built at the last load
+	 * 
+	 * @return index of cities and flights
+	 */
+	@Override
+	public GraphIndex getIndex() {
+		return this.current.get().index;
+	}
+	
+	/**
+	 * Find a city in the cities list.
+	 * 
+	 * Search with ignore cases by name, or by ascii name if no city has this name
 	 * 
 	 * @param name name of the city
 	 * @return Optional with city or an empty optinonal if not found
 	 */
 	public Optional<City> findCity(String name) {
-		return this.cities.stream().filter(c->c.getName().equalsIgnoreCase(name)).findFirst();
+		return Optional.ofNullable(this.current.get().cityNames.get(name));
+	}
+	
+	/**
+	 * Find the cities with a name or ascii name starting with a prefix
+	 * 
+	 * Search with ignore cases
+	 * 
+	 * @param prefix beginning of the name
+	 * @param limit maximum number of cities
+	 * @return cities in the order of their names
+	 */
+	public List<City> completeCity(String prefix, int limit) {
+		return this.current.get().cityNames.complete(prefix, limit);
 	}
 	
 	/**
-	 * Find am airline in the airlines list. 
+	 * Find am airline in the airlines list.
 	 * 
 	 * Search with ignore cases
 	 * 
@@ -117,9 +526,22 @@ public class Data implements Graph {
 	 * @return Optional with airline or an empty optinonal if not found
 	 */
 	public Optional<Airline> findAirline(String name) {
-		return name==null ? Optional.empty() : this.airlines.stream().filter(a->a.getName().equalsIgnoreCase(name)).findFirst();
+		return Optional.ofNullable(this.current.get().airlineNames.get(name));
 	}
 	
+	/**
+	 * Find the airlines with a name starting with a prefix
+	 * 
+	 * Search with ignore cases
+	 * 
+	 * @param prefix beginning of the name
+	 * @param limit maximum number of airlines
+	 * @return airlines in the order of their names
+	 */
+	public List<Airline> completeAirline(String prefix, int limit) {
+		return this.current.get().airlineNames.complete(prefix, limit);
+	}
+
 	/**
 	 * Find a path between two cities with an optionally airline
 	 *  
@@ -132,9 +554,75 @@ public class Data implements Graph {
 		if (source==null || destination==null)
 			return null;
 		
-		DijkstraEngine de = new DijkstraEngine(Data.getInstance());
-		de.execute(source);		
-		return de.getPath(destination, airline);		
+		Snapshot s = Data.getInstance().current.get();
+		if (s.allPairs != null && airline == null)
+			return s.allPairs.getPath(source, destination);
+		
+		return getTree(s, source, airline, Metric.DISTANCE).getPath(destination);		
+	}
+
+	/**
+	 * Find a single path between two cities with an optionally airline.
+	 * 
+	 * Uses the all-pairs table or a cached shortest path tree if there is one, otherwise
+	 * runs an A* search, or a bidirectional search if coordinates of the cities are unknown.
+	 * The result of the search is not cached.
+	 *  
+	 * @param source source city
+	 * @param destination destination city
+	 * @param airline optional, can be null if airline is not relevant
+	 * @return list of path or null if not found
+	 */
+	public static LinkedList<Flight> findPointToPointPath(City source, City destination, Airline airline) {
+		if (source==null || destination==null)
+			return null;
+		
+		Snapshot s = Data.getInstance().current.get();
+		if (s.allPairs != null && airline == null)
+			return s.allPairs.getPath(source, destination);
+		
+		ShortestPathTree tree = s.trees.peek(source, airline, Metric.DISTANCE);
+		if (tree != null)
+			return tree.getPath(destination);
+		
+		if (s.index.hasCoordinates())
+			return s.index.withAStar(e -> e.findPath(source, destination, airline));
+		
+		return s.index.withDijkstra(de -> de.findPath(source, destination, airline, Metric.DISTANCE));
+	}
+
+	/**
+	 * Find the path arriving earliest to the destination using departure and during time of the flights
+	 *  
+	 * @param source source city
+	 * @param destination destination city
+	 * @param airline optional, can be null if airline is not relevant
+	 * @param start the earliest departure from the source
+	 * @param minConnection minimum time to change planes
+	 * @return list of path or null if not found
+	 */
+	public static LinkedList<Flight> findEarliestPath(City source, City destination, Airline airline, LocalTime start, Duration minConnection) {
+		if (source==null || destination==null)
+			return null;
+		
+		return Data.getInstance().current.get().index.withConnectionScan(cse -> {
+			cse.setMinConnection(minConnection);
+			return cse.getPath(source, destination, airline, start);
+		});
+	}
+
+	/**
+	 * Find the shortest path of every airline between two cities with a single search
+	 * 
+	 * @param source source city
+	 * @param destination destination city
+	 * @return paths by airlines, empty if none of the airlines can serve the route
+	 */
+	public static Map<Airline, LinkedList<Flight>> findPathsByAirline(City source, City destination) {
+		if (source==null || destination==null)
+			return Collections.emptyMap();
+		
+		return Data.getInstance().getIndex().withDijkstra(de -> de.getPathsByAirline(source, destination));
 	}
 
 	/**
@@ -147,15 +635,17 @@ public class Data implements Graph {
 	public static void printPath(City source, City destination, LinkedList<Flight> path) {
 		if (path==null) {
 			System.out.println(String.format(Messages.getString("Data.pathNotFound"),   //$NON-NLS-1$
-											 source, destination));
+											 getInstance().format(source), getInstance().format(destination)));
 			return;
 		}
-		System.out.println(String.format(Messages.getString("Data.pathBetween"), source, destination)); //$NON-NLS-1$
+		System.out.println(String.format(Messages.getString("Data.pathBetween"), getInstance().format(source), getInstance().format(destination))); //$NON-NLS-1$
 		int totalDistance = 0;
 		Duration duration = Duration.ZERO;
 		LocalTime instant = path.get(0).getDeparture();
 		for (Flight flight : path) {
 			Duration wait = Duration.between(instant, flight.getDeparture());
+			if (wait.isNegative())
+				wait = wait.plusDays(1);
 			duration = duration.plus(wait);
 			instant = flight.getDeparture();
 			totalDistance += flight.getDistance();
@@ -4,11 +4,14 @@ import java.time.Duration;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.time.temporal.ChronoUnit;
+import java.util.Objects;
 import java.util.Optional;
 /**
  * A flight of an airline
  * 
+ * A flight is either a view of a row of a {@link FlightTable} or a standalone flight. The flights of the loaded
+ * data are views of a read only table, they cannot be changed.
+ * 
  * @author zamek
  *
  */
@@ -137,18 +140,43 @@ public class Flight {
 	
 	private final static DateTimeFormatter DEPARTURE_FORMATTER = DateTimeFormatter.ISO_LOCAL_TIME;
 	private final static DateTimeFormatter DURATION_FORMATTER = DateTimeFormatter.ofPattern("HH:mm"); //$NON-NLS-1$
-	private String id;
-	private City source;
-	private City destination;
-	private Airline airline;
-	private int distance;
-	private LocalTime during;
-	private LocalTime departure;
 	
 	/**
-	 * Deafult constructor for Flight
+	 * Fields of a flight which is not in a table
+	 */
+	private static class Row {
+		String id;
+		City source;
+		City destination;
+		Airline airline;
+		int distance;
+		int departure = FlightTable.NONE;
+		int duration = FlightTable.NONE;
+	}
+	
+	private final FlightTable table;
+	private final int row;
+	private final Row detached;
+	
+	/**
+	 * Deafult constructor for Flight, the flight is not in a table
 	 */
 	public Flight() {
+		this.table = null;
+		this.row = FlightTable.NONE;
+		this.detached = new Row();
+	}
+	
+	/**
+	 * Constructor of a flyweight flight, a view of a row of a table
+	 * 
+	 * @param table the table
+	 * @param row row of the flight
+	 */
+	Flight(FlightTable table, int row) {
+		this.table = table;
+		this.row = row;
+		this.detached = null;
 	}
 
 	/**
@@ -157,16 +185,20 @@ public class Flight {
 	 * @return id
 	 */
 	public String getId() {
-		return this.id;
+		return this.table == null ? this.detached.id : this.table.getId(this.row);
 	}
 
 	/**
 	 * Set an id for a flight
 	 * 
 	 * @param id flight id
+	 * @throws IllegalStateException if the flight is a view of a read only table
 	 */
 	public void setId(String id) {
-		this.id = id;
+		if (this.table == null)
+			this.detached.id = id;
+		else
+			this.table.setId(this.row, id);
 	}
 
 	/**
@@ -175,17 +207,23 @@ public class Flight {
 	 * @return source city
 	 */
 	public City getSource() {
-		return this.source;
+		return this.table == null ? this.detached.source : this.table.getCity(this.table.getSource(this.row));
 	}
 
 	/**
 	 * Setter for source city of a flight
 	 * 
 	 * @param from source city, does nothing if null
+	 * @throws IllegalStateException if the flight is a view of a read only table
 	 */
 	public void setSource(City from) {
-		if (from != null)
-			this.source = from;
+		if (from == null)
+			return;
+		
+		if (this.table == null)
+			this.detached.source = from;
+		else
+			this.table.setSource(this.row, from);
 	}
 
 	/**
@@ -194,17 +232,23 @@ public class Flight {
 	 * @return destination city
 	 */
 	public City getDestination() {
-		return this.destination;
+		return this.table == null ? this.detached.destination : this.table.getCity(this.table.getDestination(this.row));
 	}
 
 	/**
 	 * Setter for destination of a flight
 	 * 
 	 * @param to destination city, does nothing if null
+	 * @throws IllegalStateException if the flight is a view of a read only table
 	 */
 	public void setDestination(City to) {
-		if (to!=null)
-			this.destination = to;
+		if (to==null)
+			return;
+		
+		if (this.table == null)
+			this.detached.destination = to;
+		else
+			this.table.setDestination(this.row, to);
 	}
 
 	/**
@@ -213,17 +257,23 @@ public class Flight {
 	 * @return airline
 	 */
 	public Airline getAirline() {
-		return this.airline;
+		return this.table == null ? this.detached.airline : this.table.getAirlineById(this.table.getAirline(this.row));
 	}
 
 	/**
 	 * Setter for airline of a flight
 	 * 
 	 * @param airline does nothing if null
+	 * @throws IllegalStateException if the flight is a view of a read only table
 	 */
 	public void setAirline(Airline airline) {
-		if (airline!=null)
-			this.airline = airline;
+		if (airline==null)
+			return;
+		
+		if (this.table == null)
+			this.detached.airline = airline;
+		else
+			this.table.setAirline(this.row, airline);
 	}
 
 	/**
@@ -232,16 +282,20 @@ public class Flight {
 	 * @return distance in Km
 	 */
 	public int getDistance() {
-		return this.distance;
+		return this.table == null ? this.detached.distance : this.table.getDistance(this.row);
 	}
 
 	/**
 	 * Setter for distance of flight
 	 * 
 	 * @param distance in Km
+	 * @throws IllegalStateException if the flight is a view of a read only table
 	 */
 	public void setDistance(int distance) {
-		this.distance = distance;
+		if (this.table == null)
+			this.detached.distance = distance;
+		else
+			this.table.setDistance(this.row, distance);
 	}
 
 	/**
@@ -250,16 +304,29 @@ public class Flight {
 	 * @return during time
 	 */
 	public LocalTime getDuring() {
-		return this.during;
+		return toTime(getDuringSeconds());
+	}
+
+	/**
+	 * Getter for during time of a flight without creating a time
+	 * 
+	 * @return during time in seconds or {@link FlightTable#NONE} if it is not set
+	 */
+	public int getDuringSeconds() {
+		return this.table == null ? this.detached.duration : this.table.getDuration(this.row);
 	}
 
 	/**
 	 * Setter for during time of a flight
 	 * 
 	 * @param during time
+	 * @throws IllegalStateException if the flight is a view of a read only table
 	 */
 	public void setDuring(LocalTime during) {
-		this.during = during;
+		if (this.table == null)
+			this.detached.duration = toSeconds(during);
+		else
+			this.table.setDuration(this.row, toSeconds(during));
 	}
 	
 	/**
@@ -268,16 +335,37 @@ public class Flight {
 	 * @return the departure time 
 	 */
 	public LocalTime getDeparture() {
-		return this.departure;
+		return toTime(getDepartureSeconds());
+	}
+
+	/**
+	 * Getter for departure time of a flight without creating a time
+	 * 
+	 * @return departure in seconds of the day or {@link FlightTable#NONE} if it is not set
+	 */
+	public int getDepartureSeconds() {
+		return this.table == null ? this.detached.departure : this.table.getDeparture(this.row);
 	}
 
 	/**
 	 * Setter for departure time of a flight
 	 * 
 	 * @param departure the departure time
+	 * @throws IllegalStateException if the flight is a view of a read only table
 	 */
 	public void setDeparture(LocalTime departure) {
-		this.departure = departure;
+		if (this.table == null)
+			this.detached.departure = toSeconds(departure);
+		else
+			this.table.setDeparture(this.row, toSeconds(departure));
+	}
+	
+	private static LocalTime toTime(int seconds) {
+		return seconds == FlightTable.NONE ? null : LocalTime.ofSecondOfDay(seconds);
+	}
+	
+	private static int toSeconds(LocalTime time) {
+		return time == null ? FlightTable.NONE : time.toSecondOfDay();
 	}
 	
 	/**
@@ -302,21 +390,18 @@ public class Flight {
 	 * @return the incremented time
 	 */
 	public LocalTime addDuration(LocalTime t) {
-		return t.plus(this.during.toNanoOfDay(), ChronoUnit.NANOS);
+		return t.plusSeconds(getDuringSeconds());
 	}
 	
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((this.airline == null) ? 0 : this.airline.hashCode());
-		result = prime * result + ((this.departure == null) ? 0 : this.departure.hashCode());
-		result = prime * result + ((this.destination == null) ? 0 : this.destination.hashCode());
-		result = prime * result + this.distance;
-		result = prime * result + ((this.during == null) ? 0 : this.during.hashCode());
-		result = prime * result + ((this.id == null) ? 0 : this.id.hashCode());
-		result = prime * result + ((this.source == null) ? 0 : this.source.hashCode());
-		return result;
+		int result = Objects.hashCode(getAirline());
+		result = 31 * result + getDepartureSeconds();
+		result = 31 * result + Objects.hashCode(getDestination());
+		result = 31 * result + getDistance();
+		result = 31 * result + getDuringSeconds();
+		result = 31 * result + Objects.hashCode(getId());
+		return 31 * result + Objects.hashCode(getSource());
 	}
 
 	@Override
@@ -328,46 +413,22 @@ public class Flight {
 		if (getClass() != obj.getClass())
 			return false;
 		Flight other = (Flight) obj;
-		if (this.airline == null) {
-			if (other.airline != null)
-				return false;
-		} else if (!this.airline.equals(other.airline))
-			return false;
-		if (this.departure == null) {
-			if (other.departure != null)
-				return false;
-		} else if (!this.departure.equals(other.departure))
-			return false;
-		if (this.destination == null) {
-			if (other.destination != null)
-				return false;
-		} else if (!this.destination.equals(other.destination))
-			return false;
-		if (this.distance != other.distance)
-			return false;
-		if (this.during == null) {
-			if (other.during != null)
-				return false;
-		} else if (!this.during.equals(other.during))
-			return false;
-		if (this.id == null) {
-			if (other.id != null)
-				return false;
-		} else if (!this.id.equals(other.id))
-			return false;
-		if (this.source == null) {
-			if (other.source != null)
-				return false;
-		} else if (!this.source.equals(other.source))
-			return false;
-		return true;
+		if (this.table != null && this.table == other.table && this.row == other.row)
+			return true;
+		return Objects.equals(getAirline(), other.getAirline()) 
+				&& getDepartureSeconds() == other.getDepartureSeconds()
+				&& Objects.equals(getDestination(), other.getDestination())
+				&& getDistance() == other.getDistance()
+				&& getDuringSeconds() == other.getDuringSeconds()
+				&& Objects.equals(getId(), other.getId())
+				&& Objects.equals(getSource(), other.getSource());
 	}
 	
 	@Override
 	public String toString() {
-		return String.format(Messages.getString("Flight.tostring"), this.id, this.source.getName(), this.destination.getName(),  //$NON-NLS-1$
-					Integer.valueOf(this.distance), DEPARTURE_FORMATTER.format(this.departure), 
-					DURATION_FORMATTER.format(this.during), this.airline.getName()); 
+		return String.format(Messages.getString("Flight.tostring"), getId(), getSource().getName(), getDestination().getName(),  //$NON-NLS-1$
+					Integer.valueOf(getDistance()), DEPARTURE_FORMATTER.format(getDeparture()), 
+					DURATION_FORMATTER.format(getDuring()), getAirline().getName()); 
 	}
 	
 }
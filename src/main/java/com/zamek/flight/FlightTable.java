@@ -0,0 +1,610 @@
+package com.zamek.flight;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Columnar store of flights.
+ *
+ * Every flight is a row of primitive columns, cities and airlines are stored once
+ * in dictionaries and referenced by their dense ids in the table. The dictionaries map the
+ * cities and airlines of the table only, so their size does not depend on the global registry.
+ * The population, coordinates and ascii name of the cities are columns of the city dictionary, they belong
+ * to the load of the table and not to the shared cities.
+ *
+ * A table is read only after {@link #freeze()}, a published table is shared by the readers of the loaded data
+ * and by the index of its flights.
+ *
+ * @author zamek
+ *
+ */
+public class FlightTable {
+	/**
+	 * Id of an unset city or airline and value of an unset time
+	 */
+	public final static int NONE = -1;
+	private final static int INITIAL_CAPACITY = 1024;
+
+	private final List<City> cities = new ArrayList<>();
+	private final Map<City, Integer> cityIds = new HashMap<>();
+	private int[] populations = new int[0];
+	private double[] latitudes = new double[0];
+	private double[] longitudes = new double[0];
+	private String[] asciiNames = new String[0];
+	private final List<Airline> airlines = new ArrayList<>();
+	private final Map<Airline, Integer> airlineIds = new HashMap<>();
+
+	private String[] ids;
+	private int[] sources;
+	private int[] destinations;
+	private short[] airlineColumn;
+	private int[] distances;
+	private int[] departures;
+	private int[] durations;
+	private int size;
+	private volatile boolean frozen;
+
+	/**
+	 * Create an empty table
+	 */
+	public FlightTable() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Create an empty table
+	 *
+	 * @param capacity initial number of rows
+	 */
+	public FlightTable(int capacity) {
+		allocate(Math.max(1, capacity));
+	}
+
+	/**
+	 * Create a table of prebuilt columns, the arrays are used without copy
+	 *
+	 * @param cities dictionary of the cities
+	 * @param airlines dictionary of the airlines
+	 * @param ids flight ids
+	 * @param sources ids of the source cities
+	 * @param destinations ids of the destination cities
+	 * @param airlineColumn ids of the airlines
+	 * @param distances distances in Km
+	 * @param departures departures in seconds of the day
+	 * @param durations during times in seconds
+	 */
+	public FlightTable(List<City> cities, List<Airline> airlines, String[] ids, int[] sources, int[] destinations,
+			short[] airlineColumn, int[] distances, int[] departures, int[] durations) {
+		for (City c : cities)
+			addCity(c);
+		for (Airline a : airlines)
+			addAirline(a);
+		this.ids = ids;
+		this.sources = sources;
+		this.destinations = destinations;
+		this.airlineColumn = airlineColumn;
+		this.distances = distances;
+		this.departures = departures;
+		this.durations = durations;
+		this.size = ids.length;
+	}
+
+	/**
+	 * Add a city to the dictionary
+	 *
+	 * @param city the city
+	 * @return dense id of the city
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public int addCity(City city) {
+		checkWritable();
+		Integer id = this.cityIds.get(city);
+		if (id != null)
+			return id.intValue();
+
+		int added = this.cities.size();
+		if (added == this.populations.length) {
+			int capacity = Math.max(16, added * 2);
+			this.populations = Arrays.copyOf(this.populations, capacity);
+			this.latitudes = Arrays.copyOf(this.latitudes, capacity);
+			this.longitudes = Arrays.copyOf(this.longitudes, capacity);
+			this.asciiNames = Arrays.copyOf(this.asciiNames, capacity);
+		}
+		this.latitudes[added] = Double.NaN;
+		this.longitudes[added] = Double.NaN;
+		this.cityIds.put(city, Integer.valueOf(added));
+		this.cities.add(city);
+		return added;
+	}
+
+	/**
+	 * Add a city to the dictionary with its data of the population database, the data of a
+	 * city already in the dictionary is replaced
+	 *
+	 * @param city the city
+	 * @param population population of the city, a negative value is ignored
+	 * @param latitude latitude in degrees, between -90 and 90
+	 * @param longitude longitude in degrees, between -180 and 180, the coordinates are unknown if any of them is out of range
+	 * @param asciiName name of the city with ascii characters, can be null
+	 * @return dense id of the city
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public int addCity(City city, int population, double latitude, double longitude, String asciiName) {
+		checkWritable();
+		int id = addCity(city);
+		if (population >= 0)
+			this.populations[id] = population;
+		boolean valid = Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180;
+		this.latitudes[id] = valid ? latitude : Double.NaN;
+		this.longitudes[id] = valid ? longitude : Double.NaN;
+		this.asciiNames[id] = StringUtils.isBlank(asciiName) ? null : asciiName;
+		return id;
+	}
+
+	/**
+	 * Get the id of a city in the dictionary
+	 *
+	 * @param city the city
+	 * @return dense id of the city or {@link #NONE} if it is not in the table
+	 */
+	public int indexOf(City city) {
+		Integer id = this.cityIds.get(city);
+		return id == null ? NONE : id.intValue();
+	}
+
+	/**
+	 * Add an airline to the dictionary
+	 *
+	 * @param airline the airline
+	 * @return dense id of the airline
+	 * @throws IllegalStateException if there are too many airlines or the table is read only
+	 */
+	public int addAirline(Airline airline) {
+		checkWritable();
+		Integer id = this.airlineIds.get(airline);
+		if (id != null)
+			return id.intValue();
+
+		if (this.airlines.size() > Short.MAX_VALUE)
+			throw new IllegalStateException("Too many airlines"); //$NON-NLS-1$
+
+		this.airlineIds.put(airline, Integer.valueOf(this.airlines.size()));
+		this.airlines.add(airline);
+		return this.airlines.size() - 1;
+	}
+
+	/**
+	 * Append a flight
+	 *
+	 * @param id flight id
+	 * @param from source city
+	 * @param to destination city
+	 * @param airline airline of the flight
+	 * @param distance distance in Km
+	 * @param departure departure in seconds of the day
+	 * @param duration during time in seconds
+	 * @return row of the flight
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public int add(String id, City from, City to, Airline airline, int distance, int departure, int duration) {
+		checkWritable();
+		if (this.size == this.ids.length)
+			grow();
+
+		int row = this.size++;
+		this.ids[row] = id;
+		this.sources[row] = addCity(from);
+		this.destinations[row] = addCity(to);
+		this.airlineColumn[row] = (short) addAirline(airline);
+		this.distances[row] = distance;
+		this.departures[row] = departure;
+		this.durations[row] = duration;
+		return row;
+	}
+
+	/**
+	 * Append all flights of an other table, cities and airlines are added to the dictionaries
+	 * in the order of the other table
+	 * 
+	 * @param other the other table
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public void addAll(FlightTable other) {
+		checkWritable();
+		int[] cityMap = new int[other.cities.size()];
+		for (int i = 0; i < cityMap.length; ++i) {
+			City city = other.cities.get(i);
+			cityMap[i] = this.cityIds.containsKey(city) ? addCity(city)
+					: addCity(city, other.populations[i], other.latitudes[i], other.longitudes[i], other.asciiNames[i]);
+		}
+		short[] airlineMap = new short[other.airlines.size()];
+		for (int i = 0; i < airlineMap.length; ++i)
+			airlineMap[i] = (short) addAirline(other.airlines.get(i));
+
+		while (this.ids.length < this.size + other.size)
+			grow();
+		for (int row = 0; row < other.size; ++row) {
+			int to = this.size + row;
+			this.ids[to] = other.ids[row];
+			this.sources[to] = other.sources[row] == NONE ? NONE : cityMap[other.sources[row]];
+			this.destinations[to] = other.destinations[row] == NONE ? NONE : cityMap[other.destinations[row]];
+			this.airlineColumn[to] = other.airlineColumn[row] == NONE ? NONE : airlineMap[other.airlineColumn[row]];
+		}
+		System.arraycopy(other.distances, 0, this.distances, this.size, other.size);
+		System.arraycopy(other.departures, 0, this.departures, this.size, other.size);
+		System.arraycopy(other.durations, 0, this.durations, this.size, other.size);
+		this.size += other.size;
+	}
+
+	/**
+	 * Make the table read only, every later change throws an {@link IllegalStateException}
+	 */
+	public void freeze() {
+		this.frozen = true;
+	}
+
+	/**
+	 * Check the table can be changed
+	 *
+	 * @return false if the table is read only
+	 */
+	public boolean isWritable() {
+		return !this.frozen;
+	}
+
+	private void checkWritable() {
+		if (this.frozen)
+			throw new IllegalStateException("The flight table is read only"); //$NON-NLS-1$
+	}
+
+	private void allocate(int capacity) {
+		this.ids = new String[capacity];
+		this.sources = new int[capacity];
+		this.destinations = new int[capacity];
+		this.airlineColumn = new short[capacity];
+		this.distances = new int[capacity];
+		this.departures = new int[capacity];
+		this.durations = new int[capacity];
+	}
+
+	private void grow() {
+		int capacity = Math.max(INITIAL_CAPACITY, this.ids.length * 2);
+		this.ids = Arrays.copyOf(this.ids, capacity);
+		this.sources = Arrays.copyOf(this.sources, capacity);
+		this.destinations = Arrays.copyOf(this.destinations, capacity);
+		this.airlineColumn = Arrays.copyOf(this.airlineColumn, capacity);
+		this.distances = Arrays.copyOf(this.distances, capacity);
+		this.departures = Arrays.copyOf(this.departures, capacity);
+		this.durations = Arrays.copyOf(this.durations, capacity);
+	}
+
+	/**
+	 * Parse a time of the xml
+	 *
+	 * @param time time in HH:mm:ss or ISO local time format
+	 * @return seconds of the day
+	 * @throws java.time.format.DateTimeParseException if the time cannot be parsed
+	 */
+	public static int parseSeconds(String time) {
+		if (time.length() == 8 && time.charAt(2) == ':' && time.charAt(5) == ':') {
+			int h = digits(time, 0);
+			int m = digits(time, 3);
+			int s = digits(time, 6);
+			if (h >= 0 && h < 24 && m >= 0 && m < 60 && s >= 0 && s < 60)
+				return h * 3600 + m * 60 + s;
+		}
+		return LocalTime.parse(time).toSecondOfDay();
+	}
+
+	private static int digits(String s, int from) {
+		char a = s.charAt(from);
+		char b = s.charAt(from + 1);
+		if (a < '0' || a > '9' || b < '0' || b > '9')
+			return -1;
+
+		return (a - '0') * 10 + (b - '0');
+	}
+
+	/**
+	 * Getter for number of flights
+	 *
+	 * @return number of rows
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Getter for the cities of the flights
+	 *
+	 * @return cities in the order of their ids
+	 */
+	public List<City> getCities() {
+		return this.cities;
+	}
+
+	/**
+	 * Getter for the airlines of the flights
+	 *
+	 * @return airlines in the order of their ids
+	 */
+	public List<Airline> getAirlines() {
+		return this.airlines;
+	}
+
+	/**
+	 * Flight id of a row
+	 *
+	 * @param row the row
+	 * @return id of the flight
+	 */
+	public String getId(int row) {
+		return this.ids[row];
+	}
+
+	/**
+	 * Source city of a row
+	 *
+	 * @param row the row
+	 * @return id of the source city
+	 */
+	public int getSource(int row) {
+		return this.sources[row];
+	}
+
+	/**
+	 * Destination city of a row
+	 *
+	 * @param row the row
+	 * @return id of the destination city
+	 */
+	public int getDestination(int row) {
+		return this.destinations[row];
+	}
+
+	/**
+	 * Airline of a row
+	 *
+	 * @param row the row
+	 * @return id of the airline
+	 */
+	public int getAirline(int row) {
+		return this.airlineColumn[row];
+	}
+
+	/**
+	 * Distance of a row
+	 *
+	 * @param row the row
+	 * @return distance in Km
+	 */
+	public int getDistance(int row) {
+		return this.distances[row];
+	}
+
+	/**
+	 * Departure of a row
+	 *
+	 * @param row the row
+	 * @return departure in seconds of the day
+	 */
+	public int getDeparture(int row) {
+		return this.departures[row];
+	}
+
+	/**
+	 * During time of a row
+	 *
+	 * @param row the row
+	 * @return during time in seconds
+	 */
+	public int getDuration(int row) {
+		return this.durations[row];
+	}
+
+	/**
+	 * City of an id
+	 *
+	 * @param id id of the city
+	 * @return the city or null if the id is {@link #NONE}
+	 */
+	public City getCity(int id) {
+		return id == NONE ? null : this.cities.get(id);
+	}
+
+	/**
+	 * Population of a city
+	 *
+	 * @param id id of the city
+	 * @return population or 0 if it is unknown
+	 */
+	public int getPopulation(int id) {
+		return this.populations[id];
+	}
+
+	/**
+	 * Latitude of a city
+	 *
+	 * @param id id of the city
+	 * @return latitude in degrees or NaN if unknown
+	 */
+	public double getLatitude(int id) {
+		return this.latitudes[id];
+	}
+
+	/**
+	 * Longitude of a city
+	 *
+	 * @param id id of the city
+	 * @return longitude in degrees or NaN if unknown
+	 */
+	public double getLongitude(int id) {
+		return this.longitudes[id];
+	}
+
+	/**
+	 * Check the coordinates of a city are known
+	 *
+	 * @param id id of the city
+	 * @return true if latitude and longitude are set
+	 */
+	public boolean hasCoordinates(int id) {
+		return !Double.isNaN(this.latitudes[id]) && !Double.isNaN(this.longitudes[id]);
+	}
+
+	/**
+	 * Name of a city with ascii characters
+	 *
+	 * @param id id of the city
+	 * @return ascii name or null if unknown
+	 */
+	public String getAsciiName(int id) {
+		return this.asciiNames[id];
+	}
+
+	/**
+	 * Compare the city dictionaries of two tables
+	 *
+	 * @param other the other table
+	 * @return true if the tables have the same cities with the same population, coordinates and ascii name,
+	 * the order of the cities is not compared
+	 */
+	public boolean hasSameCities(FlightTable other) {
+		if (this.cities.size() != other.cities.size())
+			return false;
+
+		for (int id = 0; id < this.cities.size(); ++id) {
+			int o = other.indexOf(this.cities.get(id));
+			if (o == NONE || this.populations[id] != other.populations[o]
+					|| Double.compare(this.latitudes[id], other.latitudes[o]) != 0
+					|| Double.compare(this.longitudes[id], other.longitudes[o]) != 0
+					|| !Objects.equals(this.asciiNames[id], other.asciiNames[o]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Airline of an id
+	 *
+	 * @param id id of the airline
+	 * @return the airline or null if the id is {@link #NONE}
+	 */
+	public Airline getAirlineById(int id) {
+		return id == NONE ? null : this.airlines.get(id);
+	}
+
+	/**
+	 * Set the flight id of a row
+	 *
+	 * @param row the row
+	 * @param id id of the flight
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public void setId(int row, String id) {
+		checkWritable();
+		this.ids[row] = id;
+	}
+
+	/**
+	 * Set the source city of a row
+	 *
+	 * @param row the row
+	 * @param city the city
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public void setSource(int row, City city) {
+		checkWritable();
+		this.sources[row] = addCity(city);
+	}
+
+	/**
+	 * Set the destination city of a row
+	 *
+	 * @param row the row
+	 * @param city the city
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public void setDestination(int row, City city) {
+		checkWritable();
+		this.destinations[row] = addCity(city);
+	}
+
+	/**
+	 * Set the airline of a row
+	 *
+	 * @param row the row
+	 * @param airline the airline
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public void setAirline(int row, Airline airline) {
+		checkWritable();
+		this.airlineColumn[row] = (short) addAirline(airline);
+	}
+
+	/**
+	 * Set the distance of a row
+	 *
+	 * @param row the row
+	 * @param distance distance in Km
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public void setDistance(int row, int distance) {
+		checkWritable();
+		this.distances[row] = distance;
+	}
+
+	/**
+	 * Set the departure of a row
+	 *
+	 * @param row the row
+	 * @param departure departure in seconds of the day or {@link #NONE}
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public void setDeparture(int row, int departure) {
+		checkWritable();
+		this.departures[row] = departure;
+	}
+
+	/**
+	 * Set the during time of a row
+	 *
+	 * @param row the row
+	 * @param duration during time in seconds or {@link #NONE}
+	 * @throws IllegalStateException if the table is read only
+	 */
+	public void setDuration(int row, int duration) {
+		checkWritable();
+		this.durations[row] = duration;
+	}
+
+	/**
+	 * Get the flight of a row
+	 *
+	 * @param row the row
+	 * @return a view of the row
+	 */
+	public Flight getFlight(int row) {
+		return new Flight(this, row);
+	}
+
+	/**
+	 * Get the flights of all rows
+	 *
+	 * @return views of the rows in the order of the rows
+	 */
+	public List<Flight> toList() {
+		Flight[] flights = new Flight[this.size];
+		for (int row = 0; row < this.size; ++row)
+			flights[row] = getFlight(row);
+		return Collections.unmodifiableList(Arrays.asList(flights));
+	}
+}
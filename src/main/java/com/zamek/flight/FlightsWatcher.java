@@ -0,0 +1,102 @@
+package com.zamek.flight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import com.zamek.flight.util.HasLogger;
+
+/**
+ * Watcher of a flights xml file.
+ *
+ * The directory of the file is watched on a daemon thread, the reload runs on the same thread when
+ * the file is created or modified and no more change comes within a quiet period, so a file being written
+ * is not loaded half way.
+ *
+ * @author zamek
+ *
+ */
+public class FlightsWatcher implements Closeable, HasLogger {
+	public final static long QUIET_PERIOD = 500;
+
+	private final Path file;
+	private final Runnable reload;
+	private final WatchService service;
+	private final Thread thread;
+
+	/**
+	 * Constructor of the watcher
+	 *
+	 * @param xmlName name of the xml file
+	 * @param reload runs when the file is changed
+	 * @throws IOException if the directory of the file cannot be watched
+	 */
+	public FlightsWatcher(String xmlName, Runnable reload) throws IOException {
+		this.file = Paths.get(xmlName).toAbsolutePath();
+		this.reload = reload;
+		this.service = FileSystems.getDefault().newWatchService();
+		this.file.getParent().register(this.service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		this.thread = new Thread(this::watch, "flights-watcher"); //$NON-NLS-1$
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Start watching
+	 */
+	public void start() {
+		this.thread.start();
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				if (!isChanged(this.service.take()))
+					continue;
+
+				WatchKey key;
+				while ((key = this.service.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS)) != null)
+					isChanged(key);
+				try {
+					this.reload.run();
+				}
+				catch (RuntimeException e) {
+					getLogger().error("Reloading error:"+e.getMessage()); //$NON-NLS-1$
+				}
+			}
+		}
+		catch (InterruptedException | ClosedWatchServiceException e) {
+			// closed
+		}
+	}
+
+	/**
+	 * Check the events of a key and reset it
+	 *
+	 * @param key the signalled key
+	 * @return true if the file is changed
+	 */
+	private boolean isChanged(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents())
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || this.file.getFileName().equals(event.context()))
+				changed = true;
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Stop watching, a running reload is finished
+	 */
+	@Override
+	public void close() throws IOException {
+		this.service.close();
+	}
+}
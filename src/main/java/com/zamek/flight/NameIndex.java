@@ -0,0 +1,136 @@
+package com.zamek.flight;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable case insensitive index of named items.
+ *
+ * Exact lookups use a hash of the case folded names, autocomplete uses a sorted array of the
+ * case folded names. An item can have an alias, which is found if no item has it as a name.
+ *
+ * @author zamek
+ *
+ * @param <T> type of the items
+ */
+public class NameIndex<T> {
+
+	private final Map<String, T> exact;
+	private final String[] keys;
+	private final List<T> values;
+
+	/**
+	 * Build the index
+	 *
+	 * @param items the items
+	 * @param name name of an item
+	 * @param alias alias of an item, can return null
+	 */
+	public NameIndex(Collection<T> items, Function<T, String> name, Function<T, String> alias) {
+		List<String> foldedKeys = new ArrayList<>(items.size() * 2);
+		List<T> foldedValues = new ArrayList<>(items.size() * 2);
+		this.exact = new HashMap<>(items.size() * 4);
+		for (T item : items) {
+			String key = fold(name.apply(item));
+			if (key == null)
+				continue;
+
+			this.exact.putIfAbsent(key, item);
+			foldedKeys.add(key);
+			foldedValues.add(item);
+		}
+		for (T item : items) {
+			String key = fold(alias.apply(item));
+			if (key == null || key.equals(fold(name.apply(item))))
+				continue;
+
+			this.exact.putIfAbsent(key, item);
+			foldedKeys.add(key);
+			foldedValues.add(item);
+		}
+
+		Integer[] order = new Integer[foldedKeys.size()];
+		for (int i = 0; i < order.length; ++i)
+			order[i] = Integer.valueOf(i);
+		Arrays.sort(order, (a, b) -> foldedKeys.get(a.intValue()).compareTo(foldedKeys.get(b.intValue())));
+		this.keys = new String[order.length];
+		List<T> sorted = new ArrayList<>(order.length);
+		for (int i = 0; i < order.length; ++i) {
+			this.keys[i] = foldedKeys.get(order[i].intValue());
+			sorted.add(foldedValues.get(order[i].intValue()));
+		}
+		this.values = sorted;
+	}
+
+	/**
+	 * Create an index of names without aliases
+	 *
+	 * @param items the items
+	 * @param name name of an item
+	 * @param <T> type of the items
+	 * @return the index
+	 */
+	public static <T> NameIndex<T> of(Collection<T> items, Function<T, String> name) {
+		return new NameIndex<>(items, name, i -> null);
+	}
+
+	/**
+	 * Find an item by its name or alias ignoring case
+	 *
+	 * @param name the name
+	 * @return the item or null if not found
+	 */
+	public T get(String name) {
+		String key = fold(name);
+		return key == null ? null : this.exact.get(key);
+	}
+
+	/**
+	 * Find the items with a name or alias starting with a prefix ignoring case
+	 *
+	 * @param prefix the prefix
+	 * @param limit maximum number of items
+	 * @return the items in the order of their names, an item is listed once
+	 */
+	public List<T> complete(String prefix, int limit) {
+		String key = fold(prefix);
+		if (key == null || limit <= 0)
+			return Collections.emptyList();
+
+		List<T> result = new ArrayList<>();
+		for (int i = lowerBound(key); i < this.keys.length && result.size() < limit && this.keys[i].startsWith(key); ++i)
+			if (!result.contains(this.values.get(i)))
+				result.add(this.values.get(i));
+		return result;
+	}
+
+	/**
+	 * Find the first key not less than a key, the keys can have duplicates
+	 *
+	 * @param key the key
+	 * @return index of the first key not less than the key, or the number of keys
+	 */
+	private int lowerBound(String key) {
+		int low = 0;
+		int high = this.keys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (this.keys[mid].compareTo(key) < 0)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	private static String fold(String name) {
+		return name == null ? null : name.toLowerCase(Locale.ROOT);
+	}
+}
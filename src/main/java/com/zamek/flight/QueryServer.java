@@ -0,0 +1,313 @@
+package com.zamek.flight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zamek.flight.util.HasLogger;
+import com.zamek.flight.util.Json;
+
+/**
+ * Http server of the loaded data.
+ *
+ * Endpoints, every answer is json:
+ * <ul>
+ * <li>/route?source=&amp;destination=[&amp;airline=] shortest path between two cities</li>
+ * <li>/cities[?prefix=&amp;limit=] the cities, or the cities of a name prefix</li>
+ * <li>/airlines the airlines with their number of flights</li>
+ * <li>/flights[?airline=&amp;offset=&amp;limit=] a page of all flights, or of the flights of an airline</li>
+ * </ul>
+ *
+ * A page of flights has at most {@link #MAX_PAGE} flights, a page shorter than the limit is the last one.
+ *
+ * The requests are served by a fixed number of worker threads with a bounded queue, when the queue is full
+ * the accepting thread serves the request, so the clients are slowed down instead of refused. The answers have
+ * a known length, so the connections are kept alive between the requests. The serving time of a request is
+ * sent in a Server-Timing header.
+ *
+ * @author zamek
+ *
+ */
+public class QueryServer implements Closeable, HasLogger {
+	public final static int DEFAULT_PORT = 8080;
+	public final static int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+	public final static String ROUTE = "/route"; //$NON-NLS-1$
+	public final static String CITIES = "/cities"; //$NON-NLS-1$
+	public final static String AIRLINES = "/airlines"; //$NON-NLS-1$
+	public final static String FLIGHTS = "/flights"; //$NON-NLS-1$
+	public final static String PARAM_SOURCE = "source"; //$NON-NLS-1$
+	public final static String PARAM_DESTINATION = "destination"; //$NON-NLS-1$
+	public final static String PARAM_AIRLINE = "airline"; //$NON-NLS-1$
+	public final static String PARAM_PREFIX = "prefix"; //$NON-NLS-1$
+	public final static String PARAM_LIMIT = "limit"; //$NON-NLS-1$
+	public final static String PARAM_OFFSET = "offset"; //$NON-NLS-1$
+	public final static int MAX_PAGE = 1000;
+	public final static String TIMING_HEADER = "Server-Timing"; //$NON-NLS-1$
+	private final static String CONTENT_TYPE = "application/json; charset=utf-8"; //$NON-NLS-1$
+	private final static String GET = "GET"; //$NON-NLS-1$
+	private final static int QUEUE_SIZE = 1024;
+	private final static int BACKLOG = 128;
+	private final static int DEFAULT_LIMIT = 10;
+	private final static int OK = 200;
+	private final static int BAD_REQUEST = 400;
+	private final static int NOT_FOUND = 404;
+	private final static int METHOD_NOT_ALLOWED = 405;
+	private final static int INTERNAL_ERROR = 500;
+
+	/**
+	 * An endpoint of the server
+	 */
+	@FunctionalInterface
+	private interface Endpoint {
+		/**
+		 * Answer a request
+		 *
+		 * @param params parameters of the query
+		 * @param body json of the answer
+		 * @return http status of the answer
+		 */
+		int answer(Map<String, String> params, StringBuilder body);
+	}
+
+	private final Data data;
+	private final HttpServer server;
+	private final ThreadPoolExecutor workers;
+
+	/**
+	 * Constructor of the server, it is not started
+	 *
+	 * @param data the loaded data
+	 * @param address address of the server, port 0 picks a free port
+	 * @param threads number of the worker threads
+	 * @throws IOException if the address cannot be bound
+	 */
+	public QueryServer(Data data, InetSocketAddress address, int threads) throws IOException {
+		this.data = data;
+		AtomicInteger count = new AtomicInteger();
+		this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE),
+				r -> new Thread(r, "query-server-" + count.incrementAndGet()), //$NON-NLS-1$
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		this.server = HttpServer.create(address, BACKLOG);
+		this.server.setExecutor(this.workers);
+		this.server.createContext(ROUTE, e -> handle(e, this::route));
+		this.server.createContext(CITIES, e -> handle(e, this::cities));
+		this.server.createContext(AIRLINES, e -> handle(e, this::airlines));
+		this.server.createContext(FLIGHTS, e -> handle(e, this::flights));
+	}
+
+	/**
+	 * Start serving the requests
+	 */
+	public void start() {
+		this.server.start();
+		getLogger().info(String.format("Query server is listening on %s", this.server.getAddress())); //$NON-NLS-1$
+	}
+
+	/**
+	 * Getter for the port of the server
+	 *
+	 * @return the bound port
+	 */
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	/**
+	 * Stop the server, the requests being served are finished
+	 */
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.workers.shutdown();
+	}
+
+	private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+		long start = System.nanoTime();
+		try {
+			StringBuilder body = new StringBuilder();
+			int status;
+			if (!GET.equals(exchange.getRequestMethod()))
+				status = error(body, METHOD_NOT_ALLOWED, "Only GET is served"); //$NON-NLS-1$
+			else
+				try {
+					status = endpoint.answer(parseQuery(exchange.getRequestURI().getRawQuery()), body);
+				}
+				catch (IllegalArgumentException e) { // wrong number or encoding
+					body.setLength(0);
+					status = error(body, BAD_REQUEST, e.getMessage());
+				}
+				catch (RuntimeException e) {
+					getLogger().error(String.format("Error of %s:%s", exchange.getRequestURI(), e)); //$NON-NLS-1$
+					body.setLength(0);
+					status = error(body, INTERNAL_ERROR, e.getClass().getName());
+				}
+			byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+			long nanos = System.nanoTime() - start;
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE); //$NON-NLS-1$
+			exchange.getResponseHeaders().set(TIMING_HEADER, String.format(Locale.ROOT, "app;dur=%.3f", Double.valueOf(nanos / 1e6))); //$NON-NLS-1$
+			exchange.sendResponseHeaders(status, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+			if (getLogger().isDebugEnabled())
+				getLogger().debug(String.format("%s %d %d us", exchange.getRequestURI(), Integer.valueOf(status), Long.valueOf(nanos / 1000))); //$NON-NLS-1$
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	private int route(Map<String, String> params, StringBuilder body) {
+		String sourceName = params.get(PARAM_SOURCE);
+		String destinationName = params.get(PARAM_DESTINATION);
+		if (sourceName == null || destinationName == null)
+			return error(body, BAD_REQUEST, "source and destination are needed"); //$NON-NLS-1$
+
+		Optional<City> source = this.data.findCity(sourceName);
+		if (!source.isPresent())
+			return error(body, NOT_FOUND, "Unknown city " + sourceName); //$NON-NLS-1$
+		Optional<City> destination = this.data.findCity(destinationName);
+		if (!destination.isPresent())
+			return error(body, NOT_FOUND, "Unknown city " + destinationName); //$NON-NLS-1$
+		String airlineName = params.get(PARAM_AIRLINE);
+		Optional<Airline> airline = this.data.findAirline(airlineName);
+		if (airlineName != null && !airline.isPresent())
+			return error(body, NOT_FOUND, "Unknown airline " + airlineName); //$NON-NLS-1$
+
+		LinkedList<Flight> path = Data.findPointToPointPath(source.get(), destination.get(), airline.orElse(null));
+		body.append("{\"source\":"); //$NON-NLS-1$
+		Json.appendString(body, source.get().getName()).append(",\"destination\":"); //$NON-NLS-1$
+		Json.appendString(body, destination.get().getName()).append(",\"airline\":"); //$NON-NLS-1$
+		Json.appendString(body, airline.isPresent() ? airline.get().getName() : null);
+		if (path == null) {
+			body.append(",\"status\":\"NO_PATH\"}"); //$NON-NLS-1$
+			return OK;
+		}
+		body.append(",\"status\":\"OK\",\"distance\":").append(path.stream().mapToInt(Flight::getDistance).sum()) //$NON-NLS-1$
+				.append(",\"flights\":"); //$NON-NLS-1$
+		appendFlights(body, path).append('}');
+		return OK;
+	}
+
+	private int cities(Map<String, String> params, StringBuilder body) {
+		String prefix = params.get(PARAM_PREFIX);
+		List<City> cities = prefix == null ? this.data.getCities()
+				: this.data.completeCity(prefix, Integer.parseInt(params.getOrDefault(PARAM_LIMIT, String.valueOf(DEFAULT_LIMIT))));
+		body.append('[');
+		for (City c : cities) {
+			if (body.length() > 1)
+				body.append(',');
+			body.append("{\"name\":"); //$NON-NLS-1$
+			Json.appendString(body, c.getName()).append(",\"population\":").append(this.data.getPopulation(c)).append('}'); //$NON-NLS-1$
+		}
+		body.append(']');
+		return OK;
+	}
+
+	private int airlines(Map<String, String> params, StringBuilder body) {
+		body.append('[');
+		for (Airline a : this.data.getAirlines()) {
+			if (body.length() > 1)
+				body.append(',');
+			body.append("{\"name\":"); //$NON-NLS-1$
+			Json.appendString(body, a.getName()).append(",\"flights\":").append(this.data.getFlightOfAirline(a).size()).append('}'); //$NON-NLS-1$
+		}
+		body.append(']');
+		return OK;
+	}
+
+	private int flights(Map<String, String> params, StringBuilder body) {
+		int offset = Integer.parseInt(params.getOrDefault(PARAM_OFFSET, "0")); //$NON-NLS-1$
+		int limit = Integer.parseInt(params.getOrDefault(PARAM_LIMIT, String.valueOf(MAX_PAGE)));
+		if (offset < 0 || limit < 0 || limit > MAX_PAGE)
+			return error(body, BAD_REQUEST, "offset cannot be negative, limit must be between 0 and " + MAX_PAGE); //$NON-NLS-1$
+
+		String airlineName = params.get(PARAM_AIRLINE);
+		List<Flight> flights;
+		if (airlineName == null)
+			flights = this.data.getFlights();
+		else {
+			Optional<Airline> airline = this.data.findAirline(airlineName);
+			if (!airline.isPresent())
+				return error(body, NOT_FOUND, "Unknown airline " + airlineName); //$NON-NLS-1$
+
+			flights = this.data.getFlightOfAirline(airline.get());
+		}
+		int from = Math.min(offset, flights.size());
+		appendFlights(body, flights.subList(from, Math.min(flights.size(), from + limit)));
+		return OK;
+	}
+
+	private static StringBuilder appendFlights(StringBuilder body, Collection<Flight> flights) {
+		body.append('[');
+		boolean first = true;
+		for (Flight f : flights) {
+			if (!first)
+				body.append(',');
+			first = false;
+			body.append("{\"").append(Flight.ATTR_ID).append("\":"); //$NON-NLS-1$ //$NON-NLS-2$
+			Json.appendString(body, f.getId()).append(",\"").append(Airline.NODE_NAME).append("\":"); //$NON-NLS-1$ //$NON-NLS-2$
+			Json.appendString(body, f.getAirline().getName()).append(",\"").append(Flight.ATTR_FROM).append("\":"); //$NON-NLS-1$ //$NON-NLS-2$
+			Json.appendString(body, f.getSource().getName()).append(",\"").append(Flight.ATTR_TO).append("\":"); //$NON-NLS-1$ //$NON-NLS-2$
+			Json.appendString(body, f.getDestination().getName())
+					.append(",\"").append(Flight.ATTR_DISTANCE).append("\":").append(f.getDistance()) //$NON-NLS-1$ //$NON-NLS-2$
+					.append(",\"").append(Flight.ATTR_DURING).append("\":\"") //$NON-NLS-1$ //$NON-NLS-2$
+					.append(DateTimeFormatter.ISO_LOCAL_TIME.format(f.getDuring()))
+					.append("\",\"").append(Flight.ATTR_DEPARTURE).append("\":\"") //$NON-NLS-1$ //$NON-NLS-2$
+					.append(DateTimeFormatter.ISO_LOCAL_TIME.format(f.getDeparture())).append("\"}"); //$NON-NLS-1$
+		}
+		return body.append(']');
+	}
+
+	private static int error(StringBuilder body, int status, String message) {
+		body.append("{\"status\":").append(status).append(",\"error\":"); //$NON-NLS-1$ //$NON-NLS-2$
+		Json.appendString(body, message).append('}');
+		return status;
+	}
+
+	/**
+	 * Parse the parameters of a query, the last one of a repeated parameter is kept
+	 *
+	 * @param query the raw query of the uri, can be null
+	 * @return the decoded parameters
+	 * @throws IllegalArgumentException if the query is not url encoded
+	 */
+	static Map<String, String> parseQuery(String query) {
+		Map<String, String> params = new HashMap<>();
+		if (query == null || query.isEmpty())
+			return params;
+
+		try {
+			for (String param : query.split("&")) { //$NON-NLS-1$
+				int eq = param.indexOf('=');
+				if (eq < 0)
+					params.put(URLDecoder.decode(param, StandardCharsets.UTF_8.name()), ""); //$NON-NLS-1$
+				else
+					params.put(URLDecoder.decode(param.substring(0, eq), StandardCharsets.UTF_8.name()),
+							URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8.name()));
+			}
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalArgumentException(e);
+		}
+		return params;
+	}
+}
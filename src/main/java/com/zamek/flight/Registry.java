@@ -0,0 +1,132 @@
+package com.zamek.flight;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interned objects by their names.
+ *
+ * The registry refers to its objects weakly, an object is kept while the loaded data or any other
+ * caller refers to it. The id of a collected object is reused, so the ids stay below the highest number
+ * of objects living at the same time.
+ *
+ * @author zamek
+ *
+ * @param <T> type of the objects
+ */
+final class Registry<T> {
+
+	/**
+	 * Creates an object of a name
+	 *
+	 * @param <T> type of the objects
+	 */
+	interface Factory<T> {
+		T create(int id, String name);
+	}
+
+	private static final class Entry<T> extends WeakReference<T> {
+		final String name;
+		final int id;
+
+		Entry(T value, String name, int id, ReferenceQueue<T> queue) {
+			super(value, queue);
+			this.name = name;
+			this.id = id;
+		}
+	}
+
+	private final ConcurrentMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+	private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+	private final Queue<Integer> freeIds = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger nextId = new AtomicInteger();
+	private final Factory<T> factory;
+
+	/**
+	 * Constructor of the registry
+	 *
+	 * @param factory creates the object of a new name
+	 */
+	Registry(Factory<T> factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Get the object of a name, it is created if no living object has the name
+	 *
+	 * @param name the name, not null
+	 * @return the object of the name
+	 */
+	T valueOf(String name) {
+		purge();
+		for (;;) {
+			Entry<T> old = this.entries.get(name);
+			T value = old == null ? null : old.get();
+			if (value != null)
+				return value;
+
+			int id = newId();
+			T created = this.factory.create(id, name);
+			Entry<T> added = new Entry<>(created, name, id, this.queue);
+			if (old == null ? this.entries.putIfAbsent(name, added) == null : this.entries.replace(name, old, added))
+				return created;
+
+			added.clear();
+			this.freeIds.offer(Integer.valueOf(id));
+		}
+	}
+
+	/**
+	 * Register an object by a new name
+	 *
+	 * @param value the object
+	 * @param id id of the object
+	 * @param from the old name of the object, can be null
+	 * @param to the new name
+	 * @return false if an other living object has the new name
+	 */
+	boolean rename(T value, int id, String from, String to) {
+		purge();
+		Entry<T> old = this.entries.get(to);
+		if (old != null && old.get() != null)
+			return false;
+
+		Entry<T> added = new Entry<>(value, to, id, this.queue);
+		if (!(old == null ? this.entries.putIfAbsent(to, added) == null : this.entries.replace(to, old, added))) {
+			added.clear();
+			return false;
+		}
+		Entry<T> previous = from == null ? null : this.entries.get(from);
+		if (previous != null && previous.get() == value && this.entries.remove(from, previous))
+			previous.clear();
+		return true;
+	}
+
+	/**
+	 * Getter for the number of ids in use or freed, ids are below it
+	 *
+	 * @return number of ids
+	 */
+	int count() {
+		return this.nextId.get();
+	}
+
+	private int newId() {
+		Integer id = this.freeIds.poll();
+		return id == null ? this.nextId.getAndIncrement() : id.intValue();
+	}
+
+	private void purge() {
+		for (Object ref; (ref = this.queue.poll()) != null;) {
+			@SuppressWarnings("unchecked")
+			Entry<T> e = (Entry<T>) ref;
+			this.entries.remove(e.name, e);
+			this.freeIds.offer(Integer.valueOf(e.id));
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.zamek.flight.dijkstra;
+
+import java.util.LinkedList;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.City;
+import com.zamek.flight.Flight;
+
+/**
+ * A* engine for search shortest path between two cities by distance.
+ *
+ * The great-circle distance to the target, scaled down to be never longer than any flight,
+ * is a lower bound of the remaining distance, so the search expands mostly the cities towards the target.
+ * Without coordinates the engine works as a Dijkstra search stopping at the target.
+ * The search arrays of an engine are reused by its searches,
+ * {@link GraphIndex#withAStar(java.util.function.Function)} runs a search with a pooled engine of an index.
+ *
+ * @author zamek
+ *
+ */
+public class AStarEngine {
+
+	private static final int NO_EDGE = SearchSpace.NO_EDGE;
+
+	private final GraphIndex index;
+	private final SearchSpace space;
+	private final int[] heuristic;
+	private final IndexedMinHeap frontier;
+	private int expanded;
+
+	public AStarEngine(Graph graph) {
+		this(graph.getIndex());
+	}
+
+	public AStarEngine(GraphIndex index) {
+		this.index = index;
+		this.space = new SearchSpace(index.size());
+		this.heuristic = new int[index.size()];
+		this.frontier = new IndexedMinHeap(index.size());
+	}
+
+	/**
+	 * Find the shortest path between two cities
+	 *
+	 * @param source source city
+	 * @param target destination city
+	 * @param airline use flights only of this airline, or all airlines if null
+	 * @return the founded path or null if no existing path
+	 */
+	public LinkedList<Flight> findPath(City source, City target, Airline airline) {
+		this.expanded = 0;
+		int s = this.index.getId(source);
+		int t = this.index.getId(target);
+		if (s < 0 || t < 0 || s == t)
+			return null;
+
+		Adjacency edges = this.index.getAdjacency(airline);
+		this.space.reset();
+		this.frontier.clear();
+		this.space.set(s, 0, NO_EDGE);
+		this.frontier.push(s, estimate(s, t));
+		while (!this.frontier.isEmpty()) {
+			int node = this.frontier.poll();
+			if (node == t)
+				break;
+
+			++this.expanded;
+			int nodeDistance = this.space.getDistance(node);
+			for (int e = edges.firstEdge(node), last = edges.lastEdge(node); e < last; ++e) {
+				int next = edges.getTarget(e);
+				int d = nodeDistance + edges.getWeight(e);
+				if (d < this.space.getDistance(next)) {
+					// the estimate of a city is computed when the search reaches it first
+					int h = this.space.isReached(next) ? this.heuristic[next] : estimate(next, t);
+					this.space.set(next, d, e);
+					this.frontier.push(next, d + h);
+				}
+			}
+		}
+		if (this.space.getPredecessor(t) == NO_EDGE)
+			return null;
+
+		LinkedList<Flight> path = new LinkedList<>();
+		for (int node = t; node != s; ) {
+			int edge = this.space.getPredecessor(node);
+			path.addFirst(edges.getFlight(edge));
+			node = edges.getSource(edge);
+		}
+		return path;
+	}
+
+	/**
+	 * Getter for the number of cities expanded by the last search
+	 *
+	 * @return number of expanded cities
+	 */
+	public int getExpanded() {
+		return this.expanded;
+	}
+
+	private int estimate(int node, int target) {
+		this.heuristic[node] = this.index.hasCoordinates()
+				? (int) (this.index.getHeuristicScale() * this.index.getGreatCircleDistance(node, target))
+				: 0;
+		return this.heuristic[node];
+	}
+}
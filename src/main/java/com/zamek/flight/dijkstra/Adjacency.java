@@ -0,0 +1,248 @@
+package com.zamek.flight.dijkstra;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.zamek.flight.Flight;
+
+/**
+ * Compressed adjacency list (CSR) of a set of flights over the dense city ids of a {@link GraphIndex}.
+ *
+ * The outgoing flights of city <code>n</code> are the edges between <code>firstEdge(n)</code> (inclusive)
+ * and <code>lastEdge(n)</code> (exclusive). A reverse adjacency lists the incoming flights of a city,
+ * its edges go from the destination of a flight (source of the edge) to the origin of the flight (target of the edge).
+ *
+ * The adjacency of all airlines stores the rows of the flights, every other adjacency of an index is a view
+ * of these rows: it stores only the row of each of its edges and shares the columns of the rows.
+ *
+ * @author zamek
+ *
+ */
+public class Adjacency {
+
+	private final int[] offsets;
+	private final int[] rows;
+	private final int[] origins;
+	private final int[] ends;
+	private final int[] weights;
+	private final int[] durations;
+	private final Flight[] flights;
+
+	/**
+	 * Create the adjacency storing the rows of flights, the offsets and targets are used without copy
+	 *
+	 * @param offsets first edge of every city and the number of edges at the end
+	 * @param targets destination city of every edge
+	 * @param edges the flights
+	 * @param order index in the flights of every edge
+	 */
+	Adjacency(int[] offsets, int[] targets, List<Flight> edges, int[] order) {
+		this.offsets = offsets;
+		this.rows = null;
+		this.ends = targets;
+		this.origins = new int[order.length];
+		this.weights = new int[order.length];
+		this.durations = new int[order.length];
+		this.flights = new Flight[order.length];
+		for (int n = 0; n + 1 < offsets.length; ++n)
+			Arrays.fill(this.origins, offsets[n], offsets[n + 1], n);
+		for (int e = 0; e < order.length; ++e) {
+			Flight f = edges.get(order[e]);
+			this.weights[e] = f.getDistance();
+			this.durations[e] = f.getDuringSeconds();
+			this.flights[e] = f;
+		}
+	}
+
+	/**
+	 * Create a view of some rows of an adjacency, edges of a city keep the order of the selection
+	 *
+	 * @param base the adjacency storing the rows
+	 * @param size number of cities
+	 * @param selection edges of the base adjacency in the view
+	 * @param reverse true to list the incoming flights of the cities
+	 */
+	Adjacency(Adjacency base, int size, int[] selection, boolean reverse) {
+		this.origins = reverse ? base.ends : base.origins;
+		this.ends = reverse ? base.origins : base.ends;
+		this.weights = base.weights;
+		this.durations = base.durations;
+		this.flights = base.flights;
+		this.offsets = new int[size + 1];
+		for (int row : selection)
+			++this.offsets[this.origins[row] + 1];
+		for (int n = 0; n < size; ++n)
+			this.offsets[n + 1] += this.offsets[n];
+
+		int[] next = Arrays.copyOf(this.offsets, size);
+		this.rows = new int[selection.length];
+		for (int row : selection)
+			this.rows[next[this.origins[row]]++] = row;
+	}
+
+	/**
+	 * Getter for the number of edges
+	 *
+	 * @return number of flights
+	 */
+	public int edgeCount() {
+		return this.rows == null ? this.flights.length : this.rows.length;
+	}
+
+	/**
+	 * First outgoing edge of a city
+	 *
+	 * @param node id of the city
+	 * @return index of the first edge
+	 */
+	public int firstEdge(int node) {
+		return this.offsets[node];
+	}
+
+	/**
+	 * End of the outgoing edges of a city
+	 *
+	 * @param node id of the city
+	 * @return index after the last edge
+	 */
+	public int lastEdge(int node) {
+		return this.offsets[node + 1];
+	}
+
+	/**
+	 * Origin of an edge
+	 *
+	 * @param edge index of the edge
+	 * @return id of the source city
+	 */
+	public int getSource(int edge) {
+		return this.origins[this.rows == null ? edge : this.rows[edge]];
+	}
+
+	/**
+	 * Destination of an edge
+	 *
+	 * @param edge index of the edge
+	 * @return id of the destination city
+	 */
+	public int getTarget(int edge) {
+		return this.ends[this.rows == null ? edge : this.rows[edge]];
+	}
+
+	/**
+	 * Weight of an edge
+	 *
+	 * @param edge index of the edge
+	 * @return distance in Km
+	 */
+	public int getWeight(int edge) {
+		return this.weights[this.rows == null ? edge : this.rows[edge]];
+	}
+
+	/**
+	 * Weight of an edge by a metric
+	 *
+	 * @param edge index of the edge
+	 * @param metric the metric
+	 * @return distance in Km or during time in seconds
+	 */
+	public int getWeight(int edge, Metric metric) {
+		int row = this.rows == null ? edge : this.rows[edge];
+		return metric == Metric.DURATION ? this.durations[row] : this.weights[row];
+	}
+
+	/**
+	 * The flight of an edge
+	 *
+	 * @param edge index of the edge
+	 * @return the flight
+	 */
+	public Flight getFlight(int edge) {
+		return this.flights[this.rows == null ? edge : this.rows[edge]];
+	}
+
+	/**
+	 * The outgoing flights of a city
+	 *
+	 * @param node id of the city
+	 * @return unmodifiable view of the flights of the edges of the city
+	 */
+	public List<Flight> getFlights(int node) {
+		int first = this.offsets[node];
+		int last = this.offsets[node + 1];
+		if (this.rows == null)
+			return Collections.unmodifiableList(Arrays.asList(this.flights).subList(first, last));
+
+		return new AbstractList<Flight>() {
+			@Override
+			public Flight get(int index) {
+				if (index < 0 || index >= last - first)
+					throw new IndexOutOfBoundsException(String.valueOf(index));
+				return getFlight(first + index);
+			}
+
+			@Override
+			public int size() {
+				return last - first;
+			}
+		};
+	}
+
+	/**
+	 * The flights of some edges
+	 *
+	 * @param edges indexes of the edges
+	 * @return unmodifiable view of the flights in the order of the edges
+	 */
+	List<Flight> getFlights(int[] edges) {
+		return new AbstractList<Flight>() {
+			@Override
+			public Flight get(int index) {
+				return getFlight(edges[index]);
+			}
+
+			@Override
+			public int size() {
+				return edges.length;
+			}
+		};
+	}
+
+	/**
+	 * Getter for the columns of the rows, shared by the views
+	 *
+	 * @return id of the source city of every row
+	 */
+	int[] getSources() {
+		return this.origins;
+	}
+
+	/**
+	 * Getter for the columns of the rows, shared by the views
+	 *
+	 * @return id of the destination city of every row
+	 */
+	int[] getTargets() {
+		return this.ends;
+	}
+
+	/**
+	 * Getter for the columns of the rows, shared by the views
+	 *
+	 * @return during time in seconds of every row
+	 */
+	int[] getDurations() {
+		return this.durations;
+	}
+
+	/**
+	 * Getter for the columns of the rows, shared by the views
+	 *
+	 * @return flight of every row
+	 */
+	Flight[] getRowFlights() {
+		return this.flights;
+	}
+}
@@ -0,0 +1,183 @@
+package com.zamek.flight.dijkstra;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.zamek.flight.City;
+import com.zamek.flight.Flight;
+
+/**
+ * Precomputed shortest paths between all pairs of cities.
+ *
+ * Holds the distance and the first flight of the shortest path for every source and target
+ * in flat matrices, so a path is answered by table lookups. The single source searches
+ * run in parallel on a fork join pool.
+ *
+ * @author zamek
+ *
+ */
+public class AllPairsTable implements Closeable {
+
+	/**
+	 * Default size limit of the matrices kept on the heap
+	 */
+	public final static long DEFAULT_HEAP_LIMIT = 512L * 1024 * 1024;
+
+	private final static int UNREACHED = Integer.MAX_VALUE;
+	private final static int NO_EDGE = -1;
+	private final static int SOURCES_PER_TASK = 16;
+
+	private final GraphIndex index;
+	private final Adjacency edges;
+	private final Metric metric;
+	private final IntMatrix distance;
+	private final IntMatrix nextHops;
+
+	/**
+	 * Compute the table of all airlines
+	 *
+	 * @param index adjacency index of the graph
+	 * @param metric edge weight of the searches
+	 * @param pool runs the single source searches
+	 * @param heapLimit the matrices are memory-mapped if they are larger than this limit in bytes
+	 * @throws IOException if the matrices cannot be mapped
+	 */
+	public AllPairsTable(GraphIndex index, Metric metric, ForkJoinPool pool, long heapLimit) throws IOException {
+		this.index = index;
+		this.edges = index.getAdjacency(null);
+		this.metric = metric;
+		this.distance = IntMatrix.create(index.size(), heapLimit / 2);
+		this.nextHops = IntMatrix.create(index.size(), heapLimit / 2);
+		pool.invoke(new Search(0, index.size()));
+	}
+
+	/**
+	 * Search of a range of sources
+	 */
+	private class Search extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		Search(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > SOURCES_PER_TASK) {
+				int mid = (this.from + this.to) >>> 1;
+				invokeAll(new Search(this.from, mid), new Search(mid, this.to));
+				return;
+			}
+			int[] hops = new int[AllPairsTable.this.index.size()];
+			int[] stack = new int[AllPairsTable.this.index.size()];
+			AllPairsTable.this.index.withDijkstra(de -> {
+				for (int source = this.from; source < this.to; ++source) {
+					de.execute(AllPairsTable.this.index.getCity(source), null, AllPairsTable.this.metric);
+					fillRow(de, source, hops, stack);
+				}
+				return null;
+			});
+		}
+	}
+
+	/**
+	 * Store the distances and the first edges of a search.
+	 *
+	 * The first edge of a target is the first edge of its predecessor, so every target is resolved
+	 * once by walking up to the first resolved ancestor.
+	 */
+	private void fillRow(DijkstraEngine de, int source, int[] hops, int[] stack) {
+		int size = this.index.size();
+		final int unknown = -2;
+		for (int t = 0; t < size; ++t)
+			hops[t] = unknown;
+		hops[source] = NO_EDGE;
+
+		for (int t = 0; t < size; ++t) {
+			int depth = 0;
+			int node = t;
+			while (hops[node] == unknown) {
+				int edge = de.getPredecessor(node);
+				if (edge == NO_EDGE) {
+					hops[node] = NO_EDGE;
+					break;
+				}
+				int parent = this.edges.getSource(edge);
+				if (parent == source) {
+					hops[node] = edge;
+					break;
+				}
+				stack[depth++] = node;
+				node = parent;
+			}
+			while (depth > 0)
+				hops[stack[--depth]] = hops[node];
+		}
+
+		for (int t = 0; t < size; ++t) {
+			this.distance.set(source, t, de.getDistance(t));
+			this.nextHops.set(source, t, hops[t]);
+		}
+	}
+
+	/**
+	 * Getter for the metric of the table
+	 *
+	 * @return edge weight of the searches
+	 */
+	public Metric getMetric() {
+		return this.metric;
+	}
+
+	/**
+	 * Length of the shortest path between two cities
+	 *
+	 * @param source source city
+	 * @param target destination city
+	 * @return distance in the metric of the table or -1 if the target is not reachable
+	 */
+	public int getDistance(City source, City target) {
+		int s = this.index.getId(source);
+		int t = this.index.getId(target);
+		if (s < 0 || t < 0)
+			return -1;
+
+		int d = this.distance.get(s, t);
+		return d == UNREACHED ? -1 : d;
+	}
+
+	/**
+	 * Shortest path between two cities
+	 *
+	 * @param source source city
+	 * @param target destination city
+	 * @return the founded path or null if no existing path
+	 */
+	public LinkedList<Flight> getPath(City source, City target) {
+		int node = this.index.getId(source);
+		int t = this.index.getId(target);
+		if (node < 0 || t < 0 || this.nextHops.get(node, t) == NO_EDGE)
+			return null;
+
+		LinkedList<Flight> path = new LinkedList<>();
+		for (int steps = 0; node != t && steps < this.index.size(); ++steps) {
+			int edge = this.nextHops.get(node, t);
+			path.add(this.edges.getFlight(edge));
+			node = this.edges.getTarget(edge);
+		}
+		return path;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.distance.close();
+		this.nextHops.close();
+	}
+}
@@ -0,0 +1,159 @@
+package com.zamek.flight.dijkstra;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.City;
+import com.zamek.flight.Flight;
+
+/**
+ * Earliest arrival engine over the daily timetable of a graph (connection scan).
+ *
+ * The timetable repeats every day, the engine scans the connections sorted by departure
+ * day after day until the destination cannot be reached earlier, so routes can wait overnight.
+ * Changing planes needs at least the minimum connection time between arrival and departure.
+ *
+ * @author zamek
+ *
+ */
+public class ConnectionScanEngine {
+
+	/**
+	 * Seconds of a day
+	 */
+	public static final int DAY = 24 * 60 * 60;
+
+	/**
+	 * Maximum number of days the timetable is unrolled for a search
+	 */
+	public static final int MAX_DAYS = 7;
+
+	private static final int UNREACHED = Integer.MAX_VALUE;
+	private static final int NO_CONNECTION = -1;
+
+	private final GraphIndex index;
+	private final Timetable timetable;
+	private final int[] arrival;
+	private final int[] connections;
+	private int minConnection;
+
+	public ConnectionScanEngine(Graph graph) {
+		this(graph.getIndex());
+	}
+
+	public ConnectionScanEngine(GraphIndex index) {
+		this.index = index;
+		this.timetable = index.getTimetable();
+		this.arrival = new int[index.size()];
+		this.connections = new int[index.size()];
+	}
+
+	/**
+	 * Getter for the minimum connection time
+	 *
+	 * @return minimum time between an arrival and the next departure
+	 */
+	public Duration getMinConnection() {
+		return Duration.ofSeconds(this.minConnection);
+	}
+
+	/**
+	 * Setter for the minimum connection time
+	 *
+	 * @param minConnection minimum time between an arrival and the next departure, cannot be negative or longer than a day
+	 */
+	public void setMinConnection(Duration minConnection) {
+		if (minConnection != null && !minConnection.isNegative() && minConnection.getSeconds() < DAY)
+			this.minConnection = (int) minConnection.getSeconds();
+	}
+
+	/**
+	 * Find the route arriving earliest to the destination
+	 *
+	 * @param source source city
+	 * @param target destination city
+	 * @param airline use flights only of this airline, or all airlines if null
+	 * @param start the earliest departure from the source
+	 * @return the founded path or null if no existing path
+	 */
+	public LinkedList<Flight> getPath(City source, City target, Airline airline, LocalTime start) {
+		int from = this.index.getId(source);
+		int to = this.index.getId(target);
+		if (from < 0 || to < 0 || from == to)
+			return null;
+
+		int airlineId = NO_CONNECTION;
+		if (airline != null) {
+			airlineId = this.index.getAirlineId(airline);
+			if (airlineId < 0)
+				return null;
+		}
+
+		scan(from, to, airlineId, start == null ? 0 : start.toSecondOfDay());
+		if (this.connections[to] == NO_CONNECTION)
+			return null;
+
+		LinkedList<Flight> path = new LinkedList<>();
+		for (int node = to; node != from; node = this.timetable.getSource(this.connections[node]))
+			path.addFirst(this.timetable.getFlight(this.connections[node]));
+		return path;
+	}
+
+	/**
+	 * Getter for the earliest arrival found by the last search
+	 *
+	 * @param target destination city
+	 * @return arrival after the midnight of the start day or null if the target is not reachable
+	 */
+	public Duration getArrival(City target) {
+		int node = this.index.getId(target);
+		return node < 0 || this.arrival[node] == UNREACHED ? null : Duration.ofSeconds(this.arrival[node]);
+	}
+
+	private void scan(int from, int to, int airlineId, int start) {
+		Arrays.fill(this.arrival, UNREACHED);
+		Arrays.fill(this.connections, NO_CONNECTION);
+		this.arrival[from] = start;
+		int latestReady = start;
+		int size = this.timetable.size();
+		for (int day = 0; day < MAX_DAYS; ++day) {
+			int base = day * DAY;
+			if (base >= this.arrival[to])
+				return;
+
+			boolean improved = false;
+			int readyAtStart = latestReady;
+			for (int c = 0; c < size; ++c) {
+				int departure = base + this.timetable.getDeparture(c);
+				if (departure >= this.arrival[to])
+					break;
+
+				if (airlineId != NO_CONNECTION && this.timetable.getAirline(c) != airlineId)
+					continue;
+
+				int node = this.timetable.getSource(c);
+				if (this.arrival[node] == UNREACHED)
+					continue;
+
+				int ready = node == from ? this.arrival[node] : this.arrival[node] + this.minConnection;
+				if (ready > departure)
+					continue;
+
+				int target = this.timetable.getTarget(c);
+				int arrive = departure + this.timetable.getDuration(c);
+				if (arrive < this.arrival[target]) {
+					this.arrival[target] = arrive;
+					this.connections[target] = c;
+					latestReady = Math.max(latestReady, arrive + this.minConnection);
+					improved = true;
+				}
+			}
+			// every city was reachable before this day began and nothing improved, later days cannot improve either
+			if (!improved && readyAtStart <= base)
+				return;
+		}
+	}
+}
@@ -1,13 +1,11 @@
 package com.zamek.flight.dijkstra;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 
 import com.zamek.flight.Airline;
 import com.zamek.flight.City;
@@ -16,19 +14,46 @@ import com.zamek.flight.Flight;
 /**
  * Dijkstra engine for search shortest path in a graph
  * 
+ * The search arrays of an engine are reused by its searches, an engine is not thread safe.
+ * {@link GraphIndex#withDijkstra(java.util.function.Function)} runs a search with a pooled engine of an index.
+ * 
  * @author zamek
  *
  */
 public class DijkstraEngine {
 
-    private final List<Flight> flights;
-    private Set<City> settledNodes;
-    private Set<City> unSettledNodes;
-    private Map<City, City> predecessors;
-    private Map<City, Integer> distance;
+    private static final int UNREACHED = SearchSpace.UNREACHED;
+    private static final int NO_EDGE = SearchSpace.NO_EDGE;
+
+    /**
+     * Maximum number of the labels of {@link #getPathsByAirline(City, City)}, a label takes about 24 bytes
+     */
+    public static final int MAX_LABELS = 1 << 20;
+
+    private final GraphIndex index;
+    private final SearchSpace space;
+    private final IndexedMinHeap frontier;
+    private Adjacency edges;
+    private City source;
+    private City target;
+    private boolean executed;
+    private Airline airline;
+    private Metric metric = Metric.DISTANCE;
+    private SearchSpace backwardSpace;
+    private IndexedMinHeap backwardFrontier;
+    private SearchSpace labelSpace;
+    private IndexedMinHeap labelFrontier;
+    private int labelCapacity;
 
     public DijkstraEngine(Graph graph) {
-        this.flights = new ArrayList<>(graph.getFlights());
+        this(graph.getIndex());
+    }
+
+    public DijkstraEngine(GraphIndex index) {
+        this.index = index;
+        this.space = new SearchSpace(index.size());
+        this.frontier = new IndexedMinHeap(index.size());
+        this.edges = index.getAdjacency(null);
     }
 
     /**
@@ -37,48 +62,172 @@ public class DijkstraEngine {
      * @param source source city
      */
     public void execute(City source) {
-        this.settledNodes = new HashSet<>();
-        this.unSettledNodes = new HashSet<>();
-        this.distance = new HashMap<>();
-        this.predecessors = new HashMap<>();
-        this.distance.put(source, Integer.valueOf(0));
-        this.unSettledNodes.add(source);
-        while (this.unSettledNodes.size() > 0) {
-            City node = getMinimum(this.unSettledNodes);
-            this.settledNodes.add(node);
-            this.unSettledNodes.remove(node);
+        execute(source, null);
+    }
+
+    /**
+     * Setting source point of the graph and search only with flights of an airline
+     * 
+     * @param source source city
+     * @param airline use flights only of this airline, or all airlines if null
+     */
+    public void execute(City source, Airline airline) {
+        execute(source, airline, Metric.DISTANCE);
+    }
+
+    /**
+     * Setting source point of the graph and search only with flights of an airline by a metric
+     * 
+     * @param source source city
+     * @param airline use flights only of this airline, or all airlines if null
+     * @param metric edge weight of the search
+     */
+    public void execute(City source, Airline airline, Metric metric) {
+        execute(source, null, airline, metric);
+    }
+
+    /**
+     * Search from a source point until the target is settled.
+     * 
+     * Only the path to the target is valid after the search, getting the path of another target
+     * repeats the search without early termination.
+     * 
+     * @param source source city
+     * @param target stop when the path to this city is found, or settle every city if null
+     * @param airline use flights only of this airline, or all airlines if null
+     * @param metric edge weight of the search
+     */
+    public void execute(City source, City target, Airline airline, Metric metric) {
+        this.source = source;
+        this.target = target;
+        this.airline = airline;
+        this.metric = metric;
+        this.edges = this.index.getAdjacency(airline);
+        this.space.reset();
+        this.frontier.clear();
+        this.executed = true;
+        int id = this.index.getId(source);
+        if (id < 0)
+            return;
+
+        int targetId = target == null ? NO_EDGE : this.index.getId(target);
+        this.space.set(id, 0, NO_EDGE);
+        this.frontier.push(id, 0);
+        while (!this.frontier.isEmpty()) {
+            int node = this.frontier.poll();
+            if (node == targetId)
+                return;
+
             findMinimalDistances(node);
         }
     }
 
     /**
-     * This method returns the path from the source to the selected target with the airline
+     * Find the shortest path between two cities with a bidirectional search.
+     * 
+     * A forward search from the source and a backward search from the target are expanded
+     * alternately and stopped when they cannot find a shorter path through their meeting cities.
+     * The result of the last execution is dropped, getting a path afterwards repeats that search.
+     * 
+     * @param from source city
+     * @param to destination city
+     * @param airline use flights only of this airline, or all airlines if null
+     * @param metric edge weight of the search
+     * @return the founded path or null if no existing path 
+     */
+    public LinkedList<Flight> findPath(City from, City to, Airline airline, Metric metric) {
+        this.executed = false;
+        int s = this.index.getId(from);
+        int t = this.index.getId(to);
+        if (s < 0 || t < 0 || s == t)
+            return null;
+
+        if (this.backwardFrontier == null) {
+            this.backwardSpace = new SearchSpace(this.index.size());
+            this.backwardFrontier = new IndexedMinHeap(this.index.size());
+        }
+        Adjacency forward = this.index.getAdjacency(airline);
+        Adjacency backward = this.index.getReverseAdjacency(airline);
+        this.space.reset();
+        this.backwardSpace.reset();
+        this.frontier.clear();
+        this.backwardFrontier.clear();
+        this.space.set(s, 0, NO_EDGE);
+        this.frontier.push(s, 0);
+        this.backwardSpace.set(t, 0, NO_EDGE);
+        this.backwardFrontier.push(t, 0);
+
+        long best = Long.MAX_VALUE;
+        int meeting = NO_EDGE;
+        while (!this.frontier.isEmpty() && !this.backwardFrontier.isEmpty()
+                && (long) this.frontier.peekPriority() + this.backwardFrontier.peekPriority() < best) {
+            boolean isForward = this.frontier.size() <= this.backwardFrontier.size();
+            IndexedMinHeap queue = isForward ? this.frontier : this.backwardFrontier;
+            Adjacency adj = isForward ? forward : backward;
+            SearchSpace space = isForward ? this.space : this.backwardSpace;
+            SearchSpace other = isForward ? this.backwardSpace : this.space;
+
+            int node = queue.poll();
+            int nodeDistance = space.getDistance(node);
+            for (int e = adj.firstEdge(node), last = adj.lastEdge(node); e < last; ++e) {
+                int next = adj.getTarget(e);
+                int d = nodeDistance + adj.getWeight(e, metric);
+                if (d >= space.getDistance(next))
+                    continue;
+
+                space.set(next, d, e);
+                queue.push(next, d);
+                int otherDistance = other.getDistance(next);
+                if (otherDistance != UNREACHED && (long) d + otherDistance < best) {
+                    best = (long) d + otherDistance;
+                    meeting = next;
+                }
+            }
+        }
+        if (meeting == NO_EDGE)
+            return null;
+
+        LinkedList<Flight> path = new LinkedList<>();
+        for (int node = meeting; node != s; ) {
+            int edge = this.space.getPredecessor(node);
+            path.addFirst(forward.getFlight(edge));
+            node = forward.getSource(edge);
+        }
+        for (int node = meeting; node != t; ) {
+            int edge = this.backwardSpace.getPredecessor(node);
+            path.addLast(backward.getFlight(edge));
+            node = backward.getSource(edge);
+        }
+        return path;
+    }
+
+    /**
+     * This method returns the path from the source to the selected target with the airline.
+     * 
+     * If the last execution used another airline or stopped at another target the search is repeated
+     * from the same source with the flights of the requested airline.
      *  
      * @param target destination city 
      * @param airline try to find airline only flights if not null, or all airlines if null
      * @return the founded path or null if no existing path 
      */
     public LinkedList<Flight> getPath(City target, Airline airline) {
-        LinkedList<Flight> path = new LinkedList<>();
-        City dest = target;
-        City source = this.predecessors.get(dest);
+        if (!this.executed || !Objects.equals(airline, this.airline) || this.target != null && !this.target.equals(target))
+            execute(this.source, airline, this.metric);
+
+        int node = this.index.getId(target);
         
         // check if a path exists
-        if (source == null) 
+        if (node < 0 || this.space.getPredecessor(node) == NO_EDGE) 
             return null;
         
+        LinkedList<Flight> path = new LinkedList<>();
         do {
-        	Flight fl = findFlight(source, dest, airline);
-        	if (fl == null)
-        		return null;
-        	
-        	path.add(fl);
-        	dest = source;
-        	source = this.predecessors.get(dest);
-        } while(source != null);
+        	int edge = this.space.getPredecessor(node);
+        	path.addFirst(this.edges.getFlight(edge));
+        	node = this.edges.getSource(edge);
+        } while(this.space.getPredecessor(node) != NO_EDGE);
         
-        // Put it into the correct order
-        Collections.reverse(path);
         return path;
     }
 
@@ -92,73 +241,145 @@ public class DijkstraEngine {
     	return getPath(target, null);
     }    
 
-    private void findMinimalDistances(City node) {
-        List<City> adjacentNodes = getNeighbors(node);
-        for (City target : adjacentNodes) {
-            if (getShortestDistance(target) > getShortestDistance(node) + getDistance(node, target)) {
-                this.distance.put(target, Integer.valueOf(getShortestDistance(node) + getDistance(node, target)));
-                this.predecessors.put(target, node);
-                this.unSettledNodes.add(target);
-            }
-        }
+    /**
+     * Getter for the length of the shortest path found by the last execution
+     * 
+     * @param target destination city
+     * @return distance in the metric of the last execution or -1 if the target is not reachable
+     */
+    public int getDistance(City target) {
+        int node = this.index.getId(target);
+        return node < 0 || !this.space.isReached(node) ? -1 : this.space.getDistance(node);
+    }
 
+    int getDistance(int node) {
+        return this.space.getDistance(node);
     }
 
-    private int getDistance(City node, City target) {
-        for (Flight f : this.flights) {
-            if (f.getSource().equals(node)
-                    && f.getDestination().equals(target)) {
-                return f.getDistance();
-            }
-        }
-        throw new RuntimeException("Should not happen"); //$NON-NLS-1$
+    int getPredecessor(int node) {
+        return this.space.getPredecessor(node);
+    }
+
+    /**
+     * Copy the result of the last execution into an immutable tree
+     * 
+     * @return shortest path tree of the source of the last execution
+     */
+    public ShortestPathTree getTree() {
+        if (!this.executed || this.target != null)
+            execute(this.source, this.airline, this.metric);
+        return new ShortestPathTree(this.index, this.source, this.airline, this.metric, 
+                this.space.copyDistances(), this.space.copyPredecessors());
     }
 
-    private List<City> getNeighbors(City node) {
-        List<City> neighbors = new ArrayList<>();
-        for (Flight f : this.flights) {
-            if (f.getSource().equals(node)
-                    && !isSettled(f.getDestination())) {
-                neighbors.add(f.getDestination());
+    /**
+     * Find the shortest single airline path of every airline between two cities.
+     * 
+     * Only the airlines having a flight from the source and a flight to the target are searched.
+     * The search labels every city once per airline and relaxes a label only with the flights
+     * of its own airline, so the airlines are evaluated with a single priority queue, an airline is
+     * finished when its target is settled. If the labels would be more than {@link #MAX_LABELS}
+     * the airlines are searched one by one, the result of the last execution is dropped then.
+     * 
+     * @param from source city
+     * @param to destination city
+     * @return paths by airline in the order of the airlines of the index, airlines without a path are missing
+     */
+    public Map<Airline, LinkedList<Flight>> getPathsByAirline(City from, City to) {
+        Map<Airline, LinkedList<Flight>> result = new LinkedHashMap<>();
+        int sourceId = this.index.getId(from);
+        int targetId = this.index.getId(to);
+        if (sourceId < 0 || targetId < 0 || sourceId == targetId)
+            return result;
+
+        List<Airline> airlines = new ArrayList<>();
+        for (Airline al : this.index.getAirlines()) {
+            Adjacency out = this.index.getAdjacency(al);
+            Adjacency in = this.index.getReverseAdjacency(al);
+            if (out.firstEdge(sourceId) < out.lastEdge(sourceId) && in.firstEdge(targetId) < in.lastEdge(targetId))
+                airlines.add(al);
+        }
+        if (airlines.isEmpty())
+            return result;
+
+        int size = this.index.size();
+        if ((long) airlines.size() * size > MAX_LABELS) {
+            for (Airline al : airlines) {
+                execute(from, to, al, Metric.DISTANCE);
+                LinkedList<Flight> path = getPath(to, al);
+                if (path != null)
+                    result.put(al, path);
             }
+            return result;
         }
-        return neighbors;
-    }
 
-    private City getMinimum(Set<City> Cities) {
-        City minimum = null;
-        for (City City : Cities) {
-            if (minimum == null) 
-                minimum = City;
-            else {
-                if (getShortestDistance(City) < getShortestDistance(minimum)) 
-                    minimum = City;
+        int labels = airlines.size() * size;
+        if (this.labelCapacity < labels) {
+            this.labelSpace = new SearchSpace(labels);
+            this.labelFrontier = new IndexedMinHeap(labels);
+            this.labelCapacity = labels;
+        }
+        Adjacency[] partitions = new Adjacency[airlines.size()];
+        boolean[] finished = new boolean[airlines.size()];
+        SearchSpace labelSpace = this.labelSpace;
+        IndexedMinHeap queue = this.labelFrontier;
+        labelSpace.reset();
+        queue.clear();
+        for (int a = 0; a < partitions.length; ++a) {
+            partitions[a] = this.index.getAdjacency(airlines.get(a));
+            labelSpace.set(a * size + sourceId, 0, NO_EDGE);
+            queue.push(a * size + sourceId, 0);
+        }
+
+        int found = 0;
+        while (!queue.isEmpty() && found < partitions.length) {
+            int label = queue.poll();
+            int a = label / size;
+            int node = label - a * size;
+            if (finished[a])
+                continue;
+
+            if (node == targetId) {
+                finished[a] = true;
+                ++found;
+                continue;
+            }
+            Adjacency adj = partitions[a];
+            for (int e = adj.firstEdge(node), last = adj.lastEdge(node); e < last; ++e) {
+                int target = a * size + adj.getTarget(e);
+                int d = labelSpace.getDistance(label) + adj.getWeight(e);
+                if (d < labelSpace.getDistance(target)) {
+                    labelSpace.set(target, d, e);
+                    queue.push(target, d);
+                }
             }
         }
-        return minimum;
-    }
 
-    private boolean isSettled(City City) {
-        return this.settledNodes.contains(City);
-    }
+        for (int a = 0; a < partitions.length; ++a) {
+            int edge = labelSpace.getPredecessor(a * size + targetId);
+            if (edge == NO_EDGE)
+                continue;
 
-    private int getShortestDistance(City destination) {
-        Integer d = this.distance.get(destination);
-        return d == null ? Integer.MAX_VALUE : d.intValue();
+            LinkedList<Flight> path = new LinkedList<>();
+            while (edge != NO_EDGE) {
+                path.addFirst(partitions[a].getFlight(edge));
+                edge = labelSpace.getPredecessor(a * size + partitions[a].getSource(edge));
+            }
+            result.put(airlines.get(a), path);
+        }
+        return result;
     }
 
-    private Flight findFlight(City source, City dest, Airline airline) {
-    	for(Flight fl:this.flights) {
-    		if (!fl.getSource().equals(source))
-    			continue;
-    		
-    		if (!fl.getDestination().equals(dest)) 
-    			continue;
-    		
-    		if (airline != null && fl.getAirline().equals(airline) || airline==null)
-    			return fl;
-    	}
-    	return null;
+    private void findMinimalDistances(int node) {
+        int nodeDistance = this.space.getDistance(node);
+        for (int e = this.edges.firstEdge(node), last = this.edges.lastEdge(node); e < last; ++e) {
+            int target = this.edges.getTarget(e);
+            int d = nodeDistance + this.edges.getWeight(e, this.metric);
+            if (d < this.space.getDistance(target)) {
+                this.space.set(target, d, e);
+                this.frontier.push(target, d);
+            }
+        }
     }
     
 }
\ No newline at end of file
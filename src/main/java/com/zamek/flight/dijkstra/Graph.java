@@ -4,6 +4,7 @@ import java.util.List;
 
 import com.zamek.flight.City;
 import com.zamek.flight.Flight;
+import com.zamek.flight.FlightTable;
 
 /**
  * Helper interface for Dijkstra engine
@@ -27,4 +28,28 @@ public interface Graph {
 	 */
 	List<Flight> getFlights();
 	
+	/**
+	 * Getter for the edges in columnar form
+	 * 
+	 * Row <code>i</code> of the table is the <code>i</code>th edge, the city ids of the table are
+	 * the positions of the vertexes and the cities and airlines of all rows are set, so the index is built
+	 * from the columns directly. The coordinates of the cities are known only from a table.
+	 * 
+	 * @return table of the edges or null if the graph has no table
+	 */
+	default FlightTable getFlightTable() {
+		return null;
+	}
+	
+	/**
+	 * Getter for the adjacency index of the graph
+	 * 
+	 * Implementations holding an unchanged graph should build it once and reuse it
+	 * 
+	 * @return index built from vertexes and edges
+	 */
+	default GraphIndex getIndex() {
+		return new GraphIndex(this);
+	}
+	
 }
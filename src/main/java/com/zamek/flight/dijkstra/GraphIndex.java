@@ -0,0 +1,434 @@
+package com.zamek.flight.dijkstra;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Function;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.City;
+import com.zamek.flight.Flight;
+import com.zamek.flight.FlightTable;
+
+/**
+ * Immutable adjacency index of a graph.
+ *
+ * Cities are interned to dense int ids, flights are stored in an {@link Adjacency} of all airlines
+ * and pre-partitioned into one {@link Adjacency} per airline, so an airline restricted search
+ * only touches the flights of that airline. Every adjacency has a reverse pair for backward searches.
+ * The flights of every airline are kept in the order of the graph too, for listings.
+ * The flights are stored once, as the rows of the adjacency of all airlines, the other adjacencies,
+ * the listings and the timetable store only the rows of their flights.
+ * The index pools the search engines of its graph, so the engines and their arrays are released with the index.
+ * A pool keeps at most {@link #POOL_SIZE} idle engines, the engines of more concurrent searches are dropped after them.
+ *
+ * @author zamek
+ *
+ */
+public class GraphIndex {
+
+	/**
+	 * Maximum number of idle engines of a pool
+	 */
+	public static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+
+	private final City[] cities;
+	private final Map<City, Integer> ids;
+	private final Adjacency all;
+	private final Adjacency allReverse;
+	private final List<Airline> airlines;
+	private final Map<Airline, Integer> airlineIds;
+	private final Adjacency[] partitions;
+	private final Adjacency[] reversePartitions;
+	private final List<List<Flight>> airlineFlights;
+	private final Adjacency empty;
+	private final Timetable timetable;
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final boolean coordinates;
+	private final double heuristicScale;
+	private final Deque<DijkstraEngine> dijkstraEngines = new LinkedBlockingDeque<>(POOL_SIZE);
+	private final Deque<AStarEngine> aStarEngines = new LinkedBlockingDeque<>(POOL_SIZE);
+	private final Deque<ConnectionScanEngine> connectionScanEngines = new LinkedBlockingDeque<>(POOL_SIZE);
+
+	/**
+	 * Build the index from the vertexes and edges of a graph
+	 *
+	 * @param graph source of the cities and flights
+	 */
+	public GraphIndex(Graph graph) {
+		this(graph, null, null, null);
+	}
+
+	/**
+	 * Build the index of a graph with a prebuilt adjacency of all airlines, ids of the cities are
+	 * their positions in the cities of the graph
+	 *
+	 * @param graph source of the cities and flights, its cities must contain all endpoints of the flights
+	 * @param offsets first edge of every city and the number of edges at the end, or null to build the adjacency
+	 * @param targets destination city of every edge
+	 * @param order index in the flights of the graph of every edge
+	 * @throws IllegalArgumentException if the prebuilt adjacency does not match the graph
+	 */
+	public GraphIndex(Graph graph, int[] offsets, int[] targets, int[] order) {
+		List<City> nodes = new ArrayList<>(graph.getCities());
+		// ids of the cities and airlines of the index only
+		this.ids = new HashMap<>(nodes.size() * 2);
+		int distinct = 0;
+		for (City c : nodes)
+			if (this.ids.putIfAbsent(c, Integer.valueOf(distinct)) == null)
+				++distinct;
+
+		List<Flight> edges = graph.getFlights();
+		FlightTable table = graph.getFlightTable();
+		int count = edges.size();
+		int[] from = new int[count];
+		int[] to = new int[count];
+		int[] airlineOf = new int[count];
+		List<Airline> airlineList = new ArrayList<>();
+		this.airlineIds = new HashMap<>();
+		if (table != null && table.size() == count && distinct == nodes.size() && table.getCities().equals(nodes)) {
+			// ids of the columns are the positions in the cities
+			int[] airlineMap = new int[table.getAirlines().size()];
+			Arrays.fill(airlineMap, -1);
+			for (int row = 0; row < count; ++row) {
+				from[row] = table.getSource(row);
+				to[row] = table.getDestination(row);
+				int a = table.getAirline(row);
+				if (airlineMap[a] < 0)
+					airlineMap[a] = addAirline(table.getAirlineById(a), airlineList);
+				airlineOf[row] = airlineMap[a];
+			}
+		}
+		else {
+			for (int i = 0; i < count; ++i) {
+				Flight f = edges.get(i);
+				from[i] = intern(f.getSource(), nodes);
+				to[i] = intern(f.getDestination(), nodes);
+				Airline airline = f.getAirline();
+				Integer id = airline == null ? null : this.airlineIds.get(airline);
+				if (airline == null)
+					airlineOf[i] = -1;
+				else if (id == null)
+					airlineOf[i] = addAirline(airline, airlineList);
+				else
+					airlineOf[i] = id.intValue();
+			}
+		}
+		this.cities = nodes.toArray(new City[nodes.size()]);
+		this.airlines = Collections.unmodifiableList(airlineList);
+
+		int size = this.cities.length;
+		int[] firstEdges = offsets;
+		int[] edgeTargets = targets;
+		int[] edgeOrder = order;
+		if (offsets == null) {
+			// stable counting sort of the flights by source
+			firstEdges = new int[size + 1];
+			for (int i = 0; i < count; ++i)
+				++firstEdges[from[i] + 1];
+			for (int n = 0; n < size; ++n)
+				firstEdges[n + 1] += firstEdges[n];
+			int[] next = Arrays.copyOf(firstEdges, size);
+			edgeTargets = new int[count];
+			edgeOrder = new int[count];
+			for (int i = 0; i < count; ++i) {
+				int e = next[from[i]]++;
+				edgeTargets[e] = to[i];
+				edgeOrder[e] = i;
+			}
+		}
+		else if (offsets.length != size + 1 || targets.length != count || order.length != count)
+			throw new IllegalArgumentException("Prebuilt adjacency does not match the graph"); //$NON-NLS-1$
+		this.all = new Adjacency(firstEdges, edgeTargets, edges, edgeOrder);
+
+		// the other adjacencies and the timetable are views of the rows of all airlines
+		int[] rowOf = new int[count];
+		for (int e = 0; e < count; ++e)
+			rowOf[edgeOrder[e]] = e;
+		this.allReverse = new Adjacency(this.all, size, rowOf, true);
+		this.empty = new Adjacency(this.all, size, new int[0], false);
+
+		int[][] rows = new int[airlineList.size()][];
+		int[] sizes = new int[airlineList.size()];
+		for (int i = 0; i < count; ++i)
+			if (airlineOf[i] >= 0)
+				++sizes[airlineOf[i]];
+		for (int a = 0; a < rows.length; ++a)
+			rows[a] = new int[sizes[a]];
+		Arrays.fill(sizes, 0);
+		for (int i = 0; i < count; ++i)
+			if (airlineOf[i] >= 0)
+				rows[airlineOf[i]][sizes[airlineOf[i]]++] = rowOf[i];
+		this.partitions = new Adjacency[rows.length];
+		this.reversePartitions = new Adjacency[rows.length];
+		List<List<Flight>> flightLists = new ArrayList<>(rows.length);
+		for (int a = 0; a < rows.length; ++a) {
+			this.partitions[a] = new Adjacency(this.all, size, rows[a], false);
+			this.reversePartitions[a] = new Adjacency(this.all, size, rows[a], true);
+			flightLists.add(this.all.getFlights(rows[a]));
+		}
+		this.airlineFlights = Collections.unmodifiableList(flightLists);
+		this.timetable = new Timetable(this.all, edges, rowOf, airlineOf);
+
+		this.latitudes = new double[this.cities.length];
+		this.longitudes = new double[this.cities.length];
+		boolean known = true;
+		for (int n = 0; n < this.cities.length; ++n) {
+			// coordinates are in the table of the graph only
+			int t = table == null ? FlightTable.NONE : table.indexOf(this.cities[n]);
+			known &= t != FlightTable.NONE && table.hasCoordinates(t);
+			this.latitudes[n] = t == FlightTable.NONE ? Double.NaN : Math.toRadians(table.getLatitude(t));
+			this.longitudes[n] = t == FlightTable.NONE ? Double.NaN : Math.toRadians(table.getLongitude(t));
+		}
+		this.coordinates = known;
+		this.heuristicScale = known ? computeHeuristicScale() : 0;
+	}
+
+	/**
+	 * The largest factor of the great-circle distance not longer than any flight,
+	 * so the scaled great-circle distance is a consistent lower bound of the flown distance.
+	 */
+	private double computeHeuristicScale() {
+		double scale = 1;
+		for (int e = 0; e < this.all.edgeCount(); ++e) {
+			double gc = getGreatCircleDistance(this.all.getSource(e), this.all.getTarget(e));
+			if (gc > 0)
+				scale = Math.min(scale, this.all.getWeight(e) / gc);
+		}
+		return scale;
+	}
+
+	private int intern(City city, List<City> nodes) {
+		Integer id = this.ids.get(city);
+		if (id != null)
+			return id.intValue();
+
+		nodes.add(city);
+		this.ids.put(city, Integer.valueOf(nodes.size() - 1));
+		return nodes.size() - 1;
+	}
+
+	private int addAirline(Airline airline, List<Airline> airlineList) {
+		this.airlineIds.put(airline, Integer.valueOf(airlineList.size()));
+		airlineList.add(airline);
+		return airlineList.size() - 1;
+	}
+
+	/**
+	 * Run a search with an idle Dijkstra engine of the index, a new engine is created if every engine is busy.
+	 *
+	 * The engine is returned to the pool after the search, so its results are valid inside the search only.
+	 * The last returned engine is reused first, its arrays are the most likely in the cache. The engine is
+	 * dropped instead if the pool is full.
+	 *
+	 * @param search the search
+	 * @return result of the search
+	 */
+	public <R> R withDijkstra(Function<DijkstraEngine, R> search) {
+		DijkstraEngine engine = this.dijkstraEngines.pollFirst();
+		if (engine == null)
+			engine = new DijkstraEngine(this);
+		try {
+			return search.apply(engine);
+		}
+		finally {
+			this.dijkstraEngines.offerFirst(engine);
+		}
+	}
+
+	/**
+	 * Run a search with an idle A* engine of the index, a new engine is created if every engine is busy.
+	 *
+	 * @param search the search
+	 * @return result of the search
+	 */
+	public <R> R withAStar(Function<AStarEngine, R> search) {
+		AStarEngine engine = this.aStarEngines.pollFirst();
+		if (engine == null)
+			engine = new AStarEngine(this);
+		try {
+			return search.apply(engine);
+		}
+		finally {
+			this.aStarEngines.offerFirst(engine);
+		}
+	}
+
+	/**
+	 * Run a search with an idle connection scan engine of the index, a new engine is created if every engine is busy.
+	 *
+	 * The minimum connection time set by the search is reset to zero when the engine is returned to the pool.
+	 *
+	 * @param search the search
+	 * @return result of the search
+	 */
+	public <R> R withConnectionScan(Function<ConnectionScanEngine, R> search) {
+		ConnectionScanEngine engine = this.connectionScanEngines.pollFirst();
+		if (engine == null)
+			engine = new ConnectionScanEngine(this);
+		try {
+			return search.apply(engine);
+		}
+		finally {
+			engine.setMinConnection(Duration.ZERO);
+			this.connectionScanEngines.offerFirst(engine);
+		}
+	}
+
+	/**
+	 * Getter for the number of vertexes
+	 *
+	 * @return number of cities
+	 */
+	public int size() {
+		return this.cities.length;
+	}
+
+	/**
+	 * Get the dense id of a city
+	 *
+	 * @param city the city
+	 * @return id of the city or -1 if the city is not in the graph
+	 */
+	public int getId(City city) {
+		Integer id = city == null ? null : this.ids.get(city);
+		return id == null ? -1 : id.intValue();
+	}
+
+	/**
+	 * Get a city by id
+	 *
+	 * @param id dense id of the city
+	 * @return the city
+	 */
+	public City getCity(int id) {
+		return this.cities[id];
+	}
+
+	/**
+	 * Check all cities have coordinates
+	 *
+	 * @return true if great-circle distances are known between all cities
+	 */
+	public boolean hasCoordinates() {
+		return this.coordinates;
+	}
+
+	/**
+	 * Great-circle distance between two cities
+	 *
+	 * @param from id of the first city
+	 * @param to id of the second city
+	 * @return distance in Km or NaN if coordinates are unknown
+	 */
+	public double getGreatCircleDistance(int from, int to) {
+		return GreatCircle.distance(this.latitudes[from], this.longitudes[from], this.latitudes[to], this.longitudes[to]);
+	}
+
+	/**
+	 * Getter for the scale of the great-circle distance used as the A* heuristic
+	 *
+	 * @return factor between 0 and 1, 0 if coordinates are unknown
+	 */
+	public double getHeuristicScale() {
+		return this.heuristicScale;
+	}
+
+	/**
+	 * Getter for the airlines having at least one flight
+	 *
+	 * @return airlines in the order of their first flight
+	 */
+	public List<Airline> getAirlines() {
+		return this.airlines;
+	}
+
+	/**
+	 * Get the dense id of an airline
+	 *
+	 * @param airline the airline
+	 * @return position of the airline in {@link #getAirlines()} or -1 if the airline has no flights
+	 */
+	public int getAirlineId(Airline airline) {
+		Integer id = airline == null ? null : this.airlineIds.get(airline);
+		return id == null ? -1 : id.intValue();
+	}
+
+	/**
+	 * Getter for the flights sorted by departure time
+	 *
+	 * @return timetable of all airlines
+	 */
+	public Timetable getTimetable() {
+		return this.timetable;
+	}
+
+	/**
+	 * Get the flights of an airline
+	 *
+	 * @param airline the airline or null for all airlines
+	 * @return adjacency of the flights, empty if the airline has no flights
+	 */
+	public Adjacency getAdjacency(Airline airline) {
+		if (airline == null)
+			return this.all;
+
+		int id = getAirlineId(airline);
+		return id < 0 ? this.empty : this.partitions[id];
+	}
+
+	/**
+	 * Get the incoming flights of an airline
+	 *
+	 * @param airline the airline or null for all airlines
+	 * @return reverse adjacency of the flights, empty if the airline has no flights
+	 */
+	public Adjacency getReverseAdjacency(Airline airline) {
+		if (airline == null)
+			return this.allReverse;
+
+		int id = getAirlineId(airline);
+		return id < 0 ? this.empty : this.reversePartitions[id];
+	}
+
+	/**
+	 * Get the flights of an airline
+	 *
+	 * @param airline the airline
+	 * @return unmodifiable list of the flights in the order of the graph, empty if the airline has no flights
+	 */
+	public List<Flight> getFlights(Airline airline) {
+		int id = getAirlineId(airline);
+		return id < 0 ? Collections.emptyList() : this.airlineFlights.get(id);
+	}
+
+	/**
+	 * Get the flights of all airlines departing from a city
+	 *
+	 * @param city the city
+	 * @return unmodifiable list of the flights in the order of the graph, empty if the city is not in the graph
+	 */
+	public List<Flight> getFlightsFrom(City city) {
+		int id = getId(city);
+		return id < 0 ? Collections.emptyList() : this.all.getFlights(id);
+	}
+
+	/**
+	 * Get the flights of all airlines arriving to a city
+	 *
+	 * @param city the city
+	 * @return unmodifiable list of the flights in the order of the graph, empty if the city is not in the graph
+	 */
+	public List<Flight> getFlightsTo(City city) {
+		int id = getId(city);
+		return id < 0 ? Collections.emptyList() : this.allReverse.getFlights(id);
+	}
+}
@@ -0,0 +1,34 @@
+package com.zamek.flight.dijkstra;
+
+/**
+ * Great-circle distance on the Earth with the haversine formula
+ * 
+ * @author zamek
+ *
+ */
+public final class GreatCircle {
+	
+	/**
+	 * Mean radius of the Earth in Km
+	 */
+	public final static double EARTH_RADIUS = 6371.0088;
+	
+	private GreatCircle() {
+	}
+
+	/**
+	 * Distance between two points given in radians
+	 * 
+	 * @param lat1 latitude of the first point
+	 * @param lng1 longitude of the first point
+	 * @param lat2 latitude of the second point
+	 * @param lng2 longitude of the second point
+	 * @return distance in Km
+	 */
+	public static double distance(double lat1, double lng1, double lat2, double lng2) {
+		double sinLat = Math.sin((lat2 - lat1) / 2);
+		double sinLng = Math.sin((lng2 - lng1) / 2);
+		double a = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLng * sinLng;
+		return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+}
@@ -0,0 +1,155 @@
+package com.zamek.flight.dijkstra;
+
+/**
+ * Binary min-heap of int keys with int priorities.
+ *
+ * Keys are dense ids between 0 and the capacity, every key can be in the heap once,
+ * and the priority of a contained key can be decreased in O(log n).
+ *
+ * @author zamek
+ *
+ */
+public class IndexedMinHeap {
+
+	private final int[] heap;
+	private final int[] positions;
+	private final int[] priorities;
+	private int size;
+
+	/**
+	 * Constructor for the heap
+	 *
+	 * @param capacity number of the possible keys
+	 */
+	public IndexedMinHeap(int capacity) {
+		this.heap = new int[capacity];
+		this.positions = new int[capacity];
+		this.priorities = new int[capacity];
+		for (int i = 0; i < capacity; ++i)
+			this.positions[i] = -1;
+	}
+
+	/**
+	 * Check the heap is empty
+	 *
+	 * @return true if there is no key in the heap
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Getter for number of keys in the heap
+	 *
+	 * @return number of keys
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Check a key is in the heap
+	 *
+	 * @param key the key
+	 * @return true if the key is in the heap
+	 */
+	public boolean contains(int key) {
+		return this.positions[key] >= 0;
+	}
+
+	/**
+	 * Insert a key or decrease its priority if it is already in the heap.
+	 *
+	 * A higher priority of a contained key is ignored.
+	 *
+	 * @param key the key
+	 * @param priority priority of the key
+	 */
+	public void push(int key, int priority) {
+		int pos = this.positions[key];
+		if (pos < 0) {
+			pos = this.size++;
+			this.heap[pos] = key;
+			this.positions[key] = pos;
+		} else if (priority >= this.priorities[key])
+			return;
+
+		this.priorities[key] = priority;
+		siftUp(pos);
+	}
+
+	/**
+	 * Getter for the priority of the minimum key
+	 *
+	 * @return priority of the top of the heap
+	 */
+	public int peekPriority() {
+		return this.priorities[this.heap[0]];
+	}
+
+	/**
+	 * Remove the key of minimal priority
+	 *
+	 * @return the removed key
+	 */
+	public int poll() {
+		int top = this.heap[0];
+		this.positions[top] = -1;
+		if (--this.size > 0) {
+			int last = this.heap[this.size];
+			this.heap[0] = last;
+			this.positions[last] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	/**
+	 * Remove all keys from the heap
+	 */
+	public void clear() {
+		for (int i = 0; i < this.size; ++i)
+			this.positions[this.heap[i]] = -1;
+		this.size = 0;
+	}
+
+	private void siftUp(int from) {
+		int pos = from;
+		int key = this.heap[pos];
+		int priority = this.priorities[key];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			int parentKey = this.heap[parent];
+			if (this.priorities[parentKey] <= priority)
+				break;
+
+			this.heap[pos] = parentKey;
+			this.positions[parentKey] = pos;
+			pos = parent;
+		}
+		this.heap[pos] = key;
+		this.positions[key] = pos;
+	}
+
+	private void siftDown(int from) {
+		int pos = from;
+		int key = this.heap[pos];
+		int priority = this.priorities[key];
+		int half = this.size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			int right = child + 1;
+			if (right < this.size && this.priorities[this.heap[right]] < this.priorities[this.heap[child]])
+				child = right;
+			int childKey = this.heap[child];
+			if (priority <= this.priorities[childKey])
+				break;
+
+			this.heap[pos] = childKey;
+			this.positions[childKey] = pos;
+			pos = child;
+		}
+		this.heap[pos] = key;
+		this.positions[key] = pos;
+	}
+}
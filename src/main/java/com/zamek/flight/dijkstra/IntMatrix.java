@@ -0,0 +1,139 @@
+package com.zamek.flight.dijkstra;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Square matrix of ints stored in a flat array or, when it is too large for the heap,
+ * in a memory-mapped temporary file.
+ *
+ * Different rows can be written by different threads.
+ *
+ * @author zamek
+ *
+ */
+public abstract class IntMatrix implements Closeable {
+
+	protected final int size;
+
+	protected IntMatrix(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Create a matrix
+	 *
+	 * @param size number of rows and columns
+	 * @param heapLimit maximum size in bytes kept on the heap
+	 * @return the matrix
+	 * @throws IOException if the temporary file cannot be mapped
+	 */
+	public static IntMatrix create(int size, long heapLimit) throws IOException {
+		long cells = (long) size * size;
+		return cells * Integer.BYTES <= heapLimit && cells < Integer.MAX_VALUE - 8
+				? new HeapMatrix(size)
+				: new MappedMatrix(size);
+	}
+
+	/**
+	 * Getter for number of rows and columns
+	 *
+	 * @return size of the matrix
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Get a cell
+	 *
+	 * @param row index of the row
+	 * @param col index of the column
+	 * @return value of the cell
+	 */
+	public abstract int get(int row, int col);
+
+	/**
+	 * Set a cell
+	 *
+	 * @param row index of the row
+	 * @param col index of the column
+	 * @param value new value of the cell
+	 */
+	public abstract void set(int row, int col, int value);
+
+	@Override
+	public void close() throws IOException {
+		// NC.
+	}
+
+	/**
+	 * Matrix in a flat array
+	 */
+	private static class HeapMatrix extends IntMatrix {
+		private final int[] cells;
+
+		HeapMatrix(int size) {
+			super(size);
+			this.cells = new int[size * size];
+		}
+
+		@Override
+		public int get(int row, int col) {
+			return this.cells[row * this.size + col];
+		}
+
+		@Override
+		public void set(int row, int col, int value) {
+			this.cells[row * this.size + col] = value;
+		}
+	}
+
+	/**
+	 * Matrix in a memory-mapped temporary file, mapped by chunks of rows
+	 */
+	private static class MappedMatrix extends IntMatrix {
+		private final static long CHUNK_SIZE = 1L << 30;
+
+		private final File file;
+		private final RandomAccessFile raf;
+		private final IntBuffer[] chunks;
+		private final int rowsPerChunk;
+
+		MappedMatrix(int size) throws IOException {
+			super(size);
+			long rowBytes = (long) size * Integer.BYTES;
+			this.rowsPerChunk = (int) Math.max(1, CHUNK_SIZE / rowBytes);
+			this.chunks = new IntBuffer[(size + this.rowsPerChunk - 1) / this.rowsPerChunk];
+			this.file = File.createTempFile("flight", ".matrix"); //$NON-NLS-1$ //$NON-NLS-2$
+			this.file.deleteOnExit();
+			this.raf = new RandomAccessFile(this.file, "rw"); //$NON-NLS-1$
+			FileChannel channel = this.raf.getChannel();
+			for (int c = 0; c < this.chunks.length; ++c) {
+				int rows = Math.min(this.rowsPerChunk, size - c * this.rowsPerChunk);
+				this.chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, c * this.rowsPerChunk * rowBytes, rows * rowBytes)
+									.asIntBuffer();
+			}
+		}
+
+		@Override
+		public int get(int row, int col) {
+			return this.chunks[row / this.rowsPerChunk].get((row % this.rowsPerChunk) * this.size + col);
+		}
+
+		@Override
+		public void set(int row, int col, int value) {
+			this.chunks[row / this.rowsPerChunk].put((row % this.rowsPerChunk) * this.size + col, value);
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.raf.close();
+			this.file.delete();
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.zamek.flight.dijkstra;
+
+/**
+ * Edge weight of a shortest path search
+ * 
+ * @author zamek
+ *
+ */
+public enum Metric {
+	/**
+	 * Distance of the flights in Km
+	 */
+	DISTANCE,
+	
+	/**
+	 * During time of the flights in seconds, waiting times are not counted
+	 */
+	DURATION
+}
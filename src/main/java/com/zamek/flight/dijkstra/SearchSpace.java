@@ -0,0 +1,111 @@
+package com.zamek.flight.dijkstra;
+
+import java.util.Arrays;
+
+/**
+ * Distances and predecessor edges of the cities of a search.
+ *
+ * Every city has the epoch of the search that reached it last, a city of an older epoch is unreached,
+ * so starting a new search does not clear the arrays.
+ *
+ * @author zamek
+ *
+ */
+public class SearchSpace {
+	public static final int UNREACHED = Integer.MAX_VALUE;
+	public static final int NO_EDGE = -1;
+
+	private final int[] distance;
+	private final int[] predecessors;
+	private final int[] epochs;
+	private int epoch = 1;
+
+	/**
+	 * Constructor for the search space
+	 *
+	 * @param capacity number of the cities
+	 */
+	public SearchSpace(int capacity) {
+		this.distance = new int[capacity];
+		this.predecessors = new int[capacity];
+		this.epochs = new int[capacity];
+	}
+
+	/**
+	 * Start a new search, every city becomes unreached
+	 */
+	public void reset() {
+		if (this.epoch == Integer.MAX_VALUE) {
+			Arrays.fill(this.epochs, 0);
+			this.epoch = 0;
+		}
+		++this.epoch;
+	}
+
+	/**
+	 * Check a city is reached by the current search
+	 *
+	 * @param node id of the city
+	 * @return true if the city has a distance
+	 */
+	public boolean isReached(int node) {
+		return this.epochs[node] == this.epoch;
+	}
+
+	/**
+	 * Getter for the distance of a city
+	 *
+	 * @param node id of the city
+	 * @return the distance or {@link #UNREACHED}
+	 */
+	public int getDistance(int node) {
+		return this.epochs[node] == this.epoch ? this.distance[node] : UNREACHED;
+	}
+
+	/**
+	 * Getter for the edge arriving to a city on its shortest path
+	 *
+	 * @param node id of the city
+	 * @return the edge or {@link #NO_EDGE} if the city is unreached or the source
+	 */
+	public int getPredecessor(int node) {
+		return this.epochs[node] == this.epoch ? this.predecessors[node] : NO_EDGE;
+	}
+
+	/**
+	 * Reach a city
+	 *
+	 * @param node id of the city
+	 * @param distance distance of the city
+	 * @param predecessor the arriving edge or {@link #NO_EDGE} for the source
+	 */
+	public void set(int node, int distance, int predecessor) {
+		this.epochs[node] = this.epoch;
+		this.distance[node] = distance;
+		this.predecessors[node] = predecessor;
+	}
+
+	/**
+	 * Copy the distances of every city
+	 *
+	 * @return new array of the distances
+	 */
+	public int[] copyDistances() {
+		int[] copy = new int[this.distance.length];
+		for (int i = 0; i < copy.length; ++i)
+			copy[i] = getDistance(i);
+		return copy;
+	}
+
+	/**
+	 * Copy the predecessor edges of every city
+	 *
+	 * @return new array of the edges
+	 */
+	public int[] copyPredecessors() {
+		int[] copy = new int[this.predecessors.length];
+		for (int i = 0; i < copy.length; ++i)
+			copy[i] = getPredecessor(i);
+		return copy;
+	}
+}
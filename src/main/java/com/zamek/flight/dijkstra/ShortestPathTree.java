@@ -0,0 +1,187 @@
+package com.zamek.flight.dijkstra;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.City;
+import com.zamek.flight.Flight;
+
+/**
+ * Immutable result of a single source shortest path search.
+ *
+ * Holds the distance and the predecessor edge of every city, so the path to any target
+ * is built in O(path length).
+ *
+ * @author zamek
+ *
+ */
+public class ShortestPathTree {
+
+	private final static int ARRAY_HEADER = 16;
+	private final static int OBJECT_SIZE = 48;
+
+	private final GraphIndex index;
+	private final Adjacency edges;
+	private final City source;
+	private final Airline airline;
+	private final Metric metric;
+	private final int[] distance;
+	private final int[] predecessors;
+
+	ShortestPathTree(GraphIndex index, City source, Airline airline, Metric metric, int[] distance, int[] predecessors) {
+		this.index = index;
+		this.edges = index.getAdjacency(airline);
+		this.source = source;
+		this.airline = airline;
+		this.metric = metric;
+		this.distance = distance;
+		this.predecessors = predecessors;
+	}
+
+	/**
+	 * Getter for the source of the tree
+	 *
+	 * @return source city
+	 */
+	public City getSource() {
+		return this.source;
+	}
+
+	/**
+	 * Getter for the airline of the tree
+	 *
+	 * @return airline of the flights or null if all airlines were used
+	 */
+	public Airline getAirline() {
+		return this.airline;
+	}
+
+	/**
+	 * Getter for the metric of the tree
+	 *
+	 * @return edge weight of the search
+	 */
+	public Metric getMetric() {
+		return this.metric;
+	}
+
+	/**
+	 * Path from the source to a target
+	 *
+	 * @param target destination city
+	 * @return the founded path or null if no existing path
+	 */
+	public LinkedList<Flight> getPath(City target) {
+		int node = this.index.getId(target);
+		if (node < 0 || this.predecessors[node] < 0)
+			return null;
+
+		LinkedList<Flight> path = new LinkedList<>();
+		do {
+			int edge = this.predecessors[node];
+			path.addFirst(this.edges.getFlight(edge));
+			node = this.edges.getSource(edge);
+		} while (this.predecessors[node] >= 0);
+		return path;
+	}
+
+	/**
+	 * Length of the shortest path to a target
+	 *
+	 * @param target destination city
+	 * @return distance in the metric of the tree or -1 if the target is not reachable
+	 */
+	public int getDistance(City target) {
+		int node = this.index.getId(target);
+		return node < 0 || this.distance[node] == Integer.MAX_VALUE ? -1 : this.distance[node];
+	}
+
+	/**
+	 * Check a change of the flights can change the tree.
+	 *
+	 * The tree is affected if it uses a removed flight, or an added flight leads to a city
+	 * shorter than the tree. Flights of other airlines do not affect an airline restricted tree.
+	 *
+	 * @param removed flights removed from the graph, a changed flight is removed in its old form
+	 * @param added flights added to the graph, a changed flight is added in its new form
+	 * @return true if the tree has to be computed again
+	 */
+	public boolean isAffected(Collection<Flight> removed, Collection<Flight> added) {
+		for (Flight f : removed) {
+			if (this.airline != null && !this.airline.equals(f.getAirline()))
+				continue;
+
+			int to = this.index.getId(f.getDestination());
+			if (to >= 0 && this.predecessors[to] >= 0 && this.edges.getFlight(this.predecessors[to]).equals(f))
+				return true;
+		}
+		for (Flight f : added) {
+			if (this.airline != null && !this.airline.equals(f.getAirline()))
+				continue;
+
+			int from = this.index.getId(f.getSource());
+			if (from < 0 || this.distance[from] == Integer.MAX_VALUE)
+				continue;
+
+			int to = this.index.getId(f.getDestination());
+			long weight = this.metric == Metric.DURATION ? f.getDuringSeconds() : f.getDistance();
+			if (to < 0 || this.distance[from] + weight < this.distance[to])
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Copy the tree onto an other index of the same cities and flights.
+	 *
+	 * The cities are mapped by the city and the edges by the flight, so the copy does not refer
+	 * to the index of the tree.
+	 *
+	 * @param target the new index
+	 * @return the copy or null if a city or a flight of the tree is not in the new index
+	 */
+	public ShortestPathTree rebase(GraphIndex target) {
+		Adjacency adjacency = target.getAdjacency(this.airline);
+		int[] dist = new int[target.size()];
+		int[] preds = new int[target.size()];
+		Arrays.fill(dist, Integer.MAX_VALUE);
+		Arrays.fill(preds, SearchSpace.NO_EDGE);
+		for (int node = 0; node < this.distance.length; ++node) {
+			if (this.distance[node] == Integer.MAX_VALUE)
+				continue;
+
+			int to = target.getId(this.index.getCity(node));
+			if (to < 0)
+				return null;
+
+			dist[to] = this.distance[node];
+			if (this.predecessors[node] < 0)
+				continue;
+
+			Flight f = this.edges.getFlight(this.predecessors[node]);
+			int from = target.getId(f.getSource());
+			if (from < 0)
+				return null;
+
+			int edge = adjacency.firstEdge(from);
+			while (edge < adjacency.lastEdge(from) && !adjacency.getFlight(edge).equals(f))
+				++edge;
+			if (edge == adjacency.lastEdge(from))
+				return null;
+
+			preds[to] = edge;
+		}
+		return new ShortestPathTree(target, this.source, this.airline, this.metric, dist, preds);
+	}
+
+	/**
+	 * Estimated heap usage of the tree
+	 *
+	 * @return size in bytes
+	 */
+	public long getFootprint() {
+		return OBJECT_SIZE + 2 * ARRAY_HEADER + 4L * (this.distance.length + this.predecessors.length);
+	}
+}
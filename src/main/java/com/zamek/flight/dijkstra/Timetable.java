@@ -0,0 +1,126 @@
+package com.zamek.flight.dijkstra;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.zamek.flight.Flight;
+
+/**
+ * Immutable daily timetable of flights sorted by departure time.
+ *
+ * Every connection is a row of the adjacency of all airlines of a {@link GraphIndex}, the timetable stores
+ * the departures, the airlines and the rows of the connections and shares the other columns of the rows.
+ * Times are seconds of the day.
+ *
+ * @author zamek
+ *
+ */
+public class Timetable {
+
+	private final int[] departures;
+	private final int[] airlines;
+	private final int[] rows;
+	private final int[] durations;
+	private final int[] sources;
+	private final int[] targets;
+	private final Flight[] flights;
+
+	/**
+	 * Build the timetable of flights
+	 *
+	 * @param all the adjacency storing the rows of the flights
+	 * @param edges the flights
+	 * @param rowOf row of every flight in the adjacency
+	 * @param airlineOf id of the airline of every flight
+	 */
+	Timetable(Adjacency all, List<Flight> edges, int[] rowOf, int[] airlineOf) {
+		int size = edges.size();
+		long[] order = new long[size];
+		for (int i = 0; i < size; ++i)
+			order[i] = ((long) edges.get(i).getDepartureSeconds() << 32) | i;
+		Arrays.sort(order);
+
+		this.departures = new int[size];
+		this.airlines = new int[size];
+		this.rows = new int[size];
+		for (int c = 0; c < size; ++c) {
+			int i = (int) order[c];
+			this.departures[c] = (int) (order[c] >>> 32);
+			this.airlines[c] = airlineOf[i];
+			this.rows[c] = rowOf[i];
+		}
+		this.durations = all.getDurations();
+		this.sources = all.getSources();
+		this.targets = all.getTargets();
+		this.flights = all.getRowFlights();
+	}
+
+	/**
+	 * Getter for number of connections
+	 *
+	 * @return number of flights
+	 */
+	public int size() {
+		return this.rows.length;
+	}
+
+	/**
+	 * Departure of a connection
+	 *
+	 * @param connection index of the connection
+	 * @return departure in seconds of the day
+	 */
+	public int getDeparture(int connection) {
+		return this.departures[connection];
+	}
+
+	/**
+	 * Duration of a connection
+	 *
+	 * @param connection index of the connection
+	 * @return duration in seconds
+	 */
+	public int getDuration(int connection) {
+		return this.durations[this.rows[connection]];
+	}
+
+	/**
+	 * Origin of a connection
+	 *
+	 * @param connection index of the connection
+	 * @return id of the source city
+	 */
+	public int getSource(int connection) {
+		return this.sources[this.rows[connection]];
+	}
+
+	/**
+	 * Destination of a connection
+	 *
+	 * @param connection index of the connection
+	 * @return id of the destination city
+	 */
+	public int getTarget(int connection) {
+		return this.targets[this.rows[connection]];
+	}
+
+	/**
+	 * Airline of a connection
+	 *
+	 * @param connection index of the connection
+	 * @return id of the airline in the index
+	 */
+	public int getAirline(int connection) {
+		return this.airlines[connection];
+	}
+
+	/**
+	 * The flight of a connection
+	 *
+	 * @param connection index of the connection
+	 * @return the flight
+	 */
+	public Flight getFlight(int connection) {
+		return this.flights[this.rows[connection]];
+	}
+}
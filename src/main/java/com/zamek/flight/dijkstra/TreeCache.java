@@ -0,0 +1,179 @@
+package com.zamek.flight.dijkstra;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.City;
+
+/**
+ * Bounded cache of shortest path trees keyed by source, airline and metric.
+ *
+ * The least recently used trees are evicted when the estimated footprint of the cached trees
+ * is over the limit.
+ *
+ * @author zamek
+ *
+ */
+public class TreeCache {
+
+	/**
+	 * Key of a cached tree
+	 */
+	private static class Key {
+		private final City source;
+		private final Airline airline;
+		private final Metric metric;
+
+		Key(City source, Airline airline, Metric metric) {
+			this.source = source;
+			this.airline = airline;
+			this.metric = metric;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.source, this.airline, this.metric);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			Key other = (Key) obj;
+			return Objects.equals(this.source, other.source) && Objects.equals(this.airline, other.airline)
+					&& this.metric == other.metric;
+		}
+	}
+
+	private final LinkedHashMap<Key, ShortestPathTree> trees = new LinkedHashMap<>(16, 0.75f, true);
+	private long maxFootprint;
+	private long footprint;
+
+	/**
+	 * Constructor of the cache
+	 *
+	 * @param maxFootprint maximum size of the cached trees in bytes
+	 */
+	public TreeCache(long maxFootprint) {
+		this.maxFootprint = maxFootprint;
+	}
+
+	/**
+	 * Get a cached tree or compute and cache it.
+	 *
+	 * The tree is computed outside of the lock of the cache.
+	 *
+	 * @param source source city
+	 * @param airline airline of the tree or null for all airlines
+	 * @param metric metric of the tree
+	 * @param search computes the tree if it is not cached
+	 * @return the tree
+	 */
+	public ShortestPathTree get(City source, Airline airline, Metric metric, Supplier<ShortestPathTree> search) {
+		Key key = new Key(source, airline, metric);
+		synchronized (this) {
+			ShortestPathTree tree = this.trees.get(key);
+			if (tree != null)
+				return tree;
+		}
+		ShortestPathTree tree = search.get();
+		put(key, tree);
+		return tree;
+	}
+
+	/**
+	 * Get a cached tree without computing it
+	 *
+	 * @param source source city
+	 * @param airline airline of the tree or null for all airlines
+	 * @param metric metric of the tree
+	 * @return the tree or null if it is not cached
+	 */
+	public synchronized ShortestPathTree peek(City source, Airline airline, Metric metric) {
+		return this.trees.get(new Key(source, airline, metric));
+	}
+
+	private synchronized void put(Key key, ShortestPathTree tree) {
+		ShortestPathTree old = this.trees.put(key, tree);
+		if (old != null)
+			this.footprint -= old.getFootprint();
+		this.footprint += tree.getFootprint();
+		evict();
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<Key, ShortestPathTree>> it = this.trees.entrySet().iterator();
+		while (this.footprint > this.maxFootprint && it.hasNext()) {
+			this.footprint -= it.next().getValue().getFootprint();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Setter for the size limit, evicts trees if the cache is over the new limit
+	 *
+	 * @param maxFootprint maximum size of the cached trees in bytes
+	 */
+	public synchronized void setMaxFootprint(long maxFootprint) {
+		this.maxFootprint = maxFootprint;
+		evict();
+	}
+
+	/**
+	 * Getter for the estimated size of the cached trees
+	 *
+	 * @return size in bytes
+	 */
+	public synchronized long getFootprint() {
+		return this.footprint;
+	}
+
+	/**
+	 * Getter for the number of cached trees
+	 *
+	 * @return number of trees
+	 */
+	public synchronized int size() {
+		return this.trees.size();
+	}
+
+	/**
+	 * Add some trees of an other cache rebased onto a new index, the order of use is kept.
+	 *
+	 * A tree that cannot be rebased is skipped, no added tree refers to the index of the other cache.
+	 *
+	 * @param from the cache of the old index
+	 * @param index the new index
+	 * @param keep selects the trees to add
+	 * @see ShortestPathTree#rebase(GraphIndex)
+	 */
+	public void addAll(TreeCache from, GraphIndex index, Predicate<ShortestPathTree> keep) {
+		Map<Key, ShortestPathTree> olds;
+		synchronized (from) {
+			olds = new LinkedHashMap<>(from.trees);
+		}
+		for (Map.Entry<Key, ShortestPathTree> e : olds.entrySet()) {
+			if (!keep.test(e.getValue()))
+				continue;
+
+			ShortestPathTree tree = e.getValue().rebase(index);
+			if (tree != null)
+				put(e.getKey(), tree);
+		}
+	}
+
+	/**
+	 * Remove all trees
+	 */
+	public synchronized void clear() {
+		this.trees.clear();
+		this.footprint = 0;
+	}
+}
@@ -0,0 +1,88 @@
+package com.zamek.flight.factory;
+
+/**
+ * A line of the world cities population database
+ *
+ * @author zamek
+ *
+ */
+public class CityRecord {
+	private final String name;
+	private final String asciiName;
+	private final double latitude;
+	private final double longitude;
+	private final int population;
+	private final String country;
+
+	/**
+	 * Constructor of the record
+	 *
+	 * @param name name of the city
+	 * @param asciiName name of the city with ascii characters
+	 * @param latitude latitude in degrees
+	 * @param longitude longitude in degrees
+	 * @param population population of the city
+	 * @param country country of the city
+	 */
+	public CityRecord(String name, String asciiName, double latitude, double longitude, int population, String country) {
+		this.name = name;
+		this.asciiName = asciiName;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.population = population;
+		this.country = country;
+	}
+
+	/**
+	 * Getter for name of the city
+	 * @return name of the city
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Getter for ascii name of the city
+	 * @return name of the city with ascii characters
+	 */
+	public String getAsciiName() {
+		return this.asciiName;
+	}
+
+	/**
+	 * Getter for latitude
+	 * @return latitude in degrees
+	 */
+	public double getLatitude() {
+		return this.latitude;
+	}
+
+	/**
+	 * Getter for longitude
+	 * @return longitude in degrees
+	 */
+	public double getLongitude() {
+		return this.longitude;
+	}
+
+	/**
+	 * Getter for population
+	 * @return population
+	 */
+	public int getPopulation() {
+		return this.population;
+	}
+
+	/**
+	 * Getter for country
+	 * @return country of the city
+	 */
+	public String getCountry() {
+		return this.country;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%s, %d)", this.name, this.country, Integer.valueOf(this.population)); //$NON-NLS-1$
+	}
+}
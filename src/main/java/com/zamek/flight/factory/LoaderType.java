@@ -0,0 +1,39 @@
+package com.zamek.flight.factory;
+
+/**
+ * Loaders of the flights xml
+ *
+ * @author zamek
+ *
+ */
+public enum LoaderType {
+	/**
+	 * SAX parser, validates the xml while parsing
+	 */
+	SAX,
+
+	/**
+	 * StAX streaming parser with bounded memory for large timetables
+	 */
+	STAX,
+
+	/**
+	 * StAX parsers of the airlines on a worker pool
+	 */
+	PARALLEL;
+
+	/**
+	 * Create a factory of this loader
+	 *
+	 * @param flightsXML name of the xml file
+	 * @param validate validate the xml against the schema
+	 * @return the factory
+	 */
+	public XMLFactory create(String flightsXML, boolean validate) {
+		switch (this) {
+		case STAX : return new StaxFactory(flightsXML, validate);
+		case PARALLEL : return new ShardedFactory(flightsXML, validate);
+		default : return new XMLFactory(flightsXML, validate);
+		}
+	}
+}
@@ -0,0 +1,377 @@
+package com.zamek.flight.factory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory mapped world cities population database.
+ *
+ * The csv file is scanned at byte level once, only the line offsets, the parsed coordinates and populations
+ * and the hashes of the names are stored. Names and records are created only for the cities looked up.
+ * Fields can be quoted, a quote in a quoted field is doubled.
+ *
+ * A name is found by its exact name first, then ignoring ascii case by its name and at last by its ascii name.
+ * The first line of a name wins.
+ *
+ * @author zamek
+ *
+ */
+public class PopulationFile {
+	private final static int FIELD_CITY = 0;
+	private final static int FIELD_ASCII = 1;
+	private final static int FIELD_LAT = 2;
+	private final static int FIELD_LNG = 3;
+	private final static int FIELD_POP = 4;
+	private final static int FIELD_COUNTRY = 5;
+	private final static int FIELD_COUNT = 6;
+
+	private final static int FNV_BASIS = 0x811C9DC5;
+	private final static int FNV_PRIME = 0x01000193;
+	private final static long MAX_EXACT_MANTISSA = 1L << 53;
+	private final static double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; ++i)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	/**
+	 * Field bounds of a line
+	 */
+	private static class Line {
+		final int[] starts = new int[FIELD_COUNT];
+		final int[] ends = new int[FIELD_COUNT];
+		int fields;
+		int next;
+	}
+
+	/**
+	 * Hash chains of records, a chain lists the records in the order of adding
+	 */
+	private static class Chains {
+		private final int[] heads;
+		private final int[] next;
+		private final int[] hashes;
+		private final int[] values;
+		private int size;
+
+		Chains(int capacity) {
+			this.heads = new int[Integer.highestOneBit(Math.max(1, capacity) * 2)];
+			Arrays.fill(this.heads, -1);
+			this.next = new int[capacity];
+			this.hashes = new int[capacity];
+			this.values = new int[capacity];
+		}
+
+		/**
+		 * Add a value, values must be added in reverse order
+		 */
+		void push(int hash, int value) {
+			int bucket = hash & (this.heads.length - 1);
+			this.hashes[this.size] = hash;
+			this.values[this.size] = value;
+			this.next[this.size] = this.heads[bucket];
+			this.heads[bucket] = this.size++;
+		}
+
+		int first(int hash) {
+			return this.heads[hash & (this.heads.length - 1)];
+		}
+	}
+
+	private final ByteBuffer buffer;
+	private int size;
+	private int[] lineStarts;
+	private double[] latitudes;
+	private double[] longitudes;
+	private int[] populations;
+	private final Chains exact;
+	private final Chains folded;
+
+	private PopulationFile(ByteBuffer buffer) {
+		this.buffer = buffer;
+		int capacity = Math.max(16, buffer.limit() / 64);
+		this.lineStarts = new int[capacity];
+		this.latitudes = new double[capacity];
+		this.longitudes = new double[capacity];
+		this.populations = new int[capacity];
+		int[] nameHashes = new int[capacity];
+		int[] foldedNameHashes = new int[capacity];
+		int[] foldedAsciiHashes = new int[capacity];
+
+		Line line = new Line();
+		int pos = split(0, line).next; // header
+		while (pos < buffer.limit()) {
+			int start = pos;
+			pos = split(pos, line).next;
+			if (line.fields < FIELD_COUNT)
+				continue;
+
+			double lat = parseNumber(line.starts[FIELD_LAT], line.ends[FIELD_LAT]);
+			double lng = parseNumber(line.starts[FIELD_LNG], line.ends[FIELD_LNG]);
+			double pop = parseNumber(line.starts[FIELD_POP], line.ends[FIELD_POP]);
+			if (Double.isNaN(lat) || Double.isNaN(lng) || Double.isNaN(pop))
+				continue;
+
+			if (this.size == this.lineStarts.length) {
+				int grown = this.size * 2;
+				this.lineStarts = Arrays.copyOf(this.lineStarts, grown);
+				this.latitudes = Arrays.copyOf(this.latitudes, grown);
+				this.longitudes = Arrays.copyOf(this.longitudes, grown);
+				this.populations = Arrays.copyOf(this.populations, grown);
+				nameHashes = Arrays.copyOf(nameHashes, grown);
+				foldedNameHashes = Arrays.copyOf(foldedNameHashes, grown);
+				foldedAsciiHashes = Arrays.copyOf(foldedAsciiHashes, grown);
+			}
+			this.lineStarts[this.size] = start;
+			this.latitudes[this.size] = lat;
+			this.longitudes[this.size] = lng;
+			this.populations[this.size] = (int) Math.round(pop);
+			nameHashes[this.size] = hash(line.starts[FIELD_CITY], line.ends[FIELD_CITY], false);
+			foldedNameHashes[this.size] = hash(line.starts[FIELD_CITY], line.ends[FIELD_CITY], true);
+			foldedAsciiHashes[this.size] = hash(line.starts[FIELD_ASCII], line.ends[FIELD_ASCII], true);
+			++this.size;
+		}
+
+		this.exact = new Chains(this.size);
+		for (int r = this.size - 1; r >= 0; --r)
+			this.exact.push(nameHashes[r], r);
+		// ascii names are only fallbacks of the real names
+		this.folded = new Chains(this.size * 2);
+		for (int r = this.size - 1; r >= 0; --r)
+			this.folded.push(foldedAsciiHashes[r], r << 1 | FIELD_ASCII);
+		for (int r = this.size - 1; r >= 0; --r)
+			this.folded.push(foldedNameHashes[r], r << 1 | FIELD_CITY);
+	}
+
+	/**
+	 * Open and index a population file
+	 *
+	 * @param fileName name of the csv file
+	 * @return the indexed file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static PopulationFile open(String fileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Population file is too large"); //$NON-NLS-1$
+
+			return new PopulationFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Getter for the number of valid lines
+	 *
+	 * @return number of cities
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Get a city by its position
+	 *
+	 * @param index position of the valid line, from 0 to {@link #size()} - 1
+	 * @return the record
+	 * @throws IndexOutOfBoundsException if there is no such line
+	 */
+	public CityRecord get(int index) {
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+
+		return createRecord(index, split(this.lineStarts[index], new Line()));
+	}
+
+	/**
+	 * Find a city by its name, or ignoring case by its name or ascii name
+	 *
+	 * @param name name of the city
+	 * @return the record or null if not found
+	 */
+	public CityRecord find(String name) {
+		if (name == null)
+			return null;
+
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		Line line = new Line();
+		int h = hash(bytes, false);
+		for (int e = this.exact.first(h); e >= 0; e = this.exact.next[e]) {
+			if (this.exact.hashes[e] != h)
+				continue;
+
+			int r = this.exact.values[e];
+			split(this.lineStarts[r], line);
+			if (name.equals(decode(line.starts[FIELD_CITY], line.ends[FIELD_CITY])))
+				return createRecord(r, line);
+		}
+
+		h = hash(bytes, true);
+		for (int e = this.folded.first(h); e >= 0; e = this.folded.next[e]) {
+			if (this.folded.hashes[e] != h)
+				continue;
+
+			int r = this.folded.values[e] >>> 1;
+			int field = this.folded.values[e] & 1;
+			split(this.lineStarts[r], line);
+			if (name.equalsIgnoreCase(decode(line.starts[field], line.ends[field])))
+				return createRecord(r, line);
+		}
+		return null;
+	}
+
+	private CityRecord createRecord(int r, Line line) {
+		return new CityRecord(decode(line.starts[FIELD_CITY], line.ends[FIELD_CITY]), decode(line.starts[FIELD_ASCII], line.ends[FIELD_ASCII]),
+				this.latitudes[r], this.longitudes[r], this.populations[r], decode(line.starts[FIELD_COUNTRY], line.ends[FIELD_COUNTRY]));
+	}
+
+	/**
+	 * Split a line into fields, quoted line breaks are part of the field
+	 *
+	 * @param from start of the line
+	 * @param line bounds of the first fields and start of the next line
+	 * @return the line
+	 */
+	private Line split(int from, Line line) {
+		int limit = this.buffer.limit();
+		boolean quoted = false;
+		int fieldStart = from;
+		line.fields = 0;
+		int pos = from;
+		for (; pos < limit; ++pos) {
+			byte b = this.buffer.get(pos);
+			if (b == '"')
+				quoted = !quoted; // a doubled quote toggles twice
+			else if (!quoted && (b == ',' || b == '\n' || b == '\r')) {
+				endField(line, fieldStart, pos);
+				fieldStart = pos + 1;
+				if (b != ',')
+					break;
+			}
+		}
+		if (pos == limit)
+			endField(line, fieldStart, pos);
+		while (pos < limit && (this.buffer.get(pos) == '\r' || this.buffer.get(pos) == '\n'))
+			++pos;
+		line.next = pos;
+		return line;
+	}
+
+	private static void endField(Line line, int start, int end) {
+		if (line.fields < FIELD_COUNT) {
+			line.starts[line.fields] = start;
+			line.ends[line.fields] = end;
+		}
+		++line.fields;
+	}
+
+	/**
+	 * Hash of the unquoted bytes of a field
+	 */
+	private int hash(int start, int end, boolean fold) {
+		int h = FNV_BASIS;
+		boolean quoted = false;
+		for (int i = start; i < end; ++i) {
+			byte b = this.buffer.get(i);
+			if (b == '"') {
+				if (!quoted || i + 1 >= end || this.buffer.get(i + 1) != '"') {
+					quoted = !quoted;
+					continue;
+				}
+				++i;
+			}
+			h = (h ^ (fold ? foldByte(b) : b)) * FNV_PRIME;
+		}
+		return h;
+	}
+
+	private static int hash(byte[] bytes, boolean fold) {
+		int h = FNV_BASIS;
+		for (byte b : bytes)
+			h = (h ^ (fold ? foldByte(b) : b)) * FNV_PRIME;
+		return h;
+	}
+
+	private static byte foldByte(byte b) {
+		return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+	}
+
+	/**
+	 * Create the string of the unquoted bytes of a field
+	 */
+	private String decode(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		int n = 0;
+		boolean quoted = false;
+		for (int i = start; i < end; ++i) {
+			byte b = this.buffer.get(i);
+			if (b == '"') {
+				if (!quoted || i + 1 >= end || this.buffer.get(i + 1) != '"') {
+					quoted = !quoted;
+					continue;
+				}
+				++i;
+			}
+			bytes[n++] = b;
+		}
+		return new String(bytes, 0, n, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parse a decimal number of a field
+	 *
+	 * @return the number or NaN if the field is not a number
+	 */
+	private double parseNumber(int start, int end) {
+		if (end - start >= 2 && this.buffer.get(start) == '"' && this.buffer.get(end - 1) == '"') {
+			++start;
+			--end;
+		}
+		int i = start;
+		boolean negative = i < end && this.buffer.get(i) == '-';
+		if (negative || (i < end && this.buffer.get(i) == '+'))
+			++i;
+
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean point = false;
+		for (; i < end; ++i) {
+			byte b = this.buffer.get(i);
+			if (b >= '0' && b <= '9') {
+				if (mantissa >= MAX_EXACT_MANTISSA / 10)
+					return parseSlow(start, end);
+				mantissa = mantissa * 10 + (b - '0');
+				++digits;
+				if (point)
+					++scale;
+			}
+			else if (b == '.' && !point)
+				point = true;
+			else
+				return parseSlow(start, end);
+		}
+		if (digits == 0)
+			return Double.NaN;
+		if (scale >= POWERS_OF_TEN.length)
+			return parseSlow(start, end);
+
+		// both operands are exact, so the division is correctly rounded
+		double value = mantissa / POWERS_OF_TEN[scale];
+		return negative ? -value : value;
+	}
+
+	private double parseSlow(int start, int end) {
+		try {
+			return Double.parseDouble(decode(start, end).trim());
+		}
+		catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package com.zamek.flight.factory;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.City;
+import com.zamek.flight.Flight;
+import com.zamek.flight.FlightTable;
+
+/**
+ * Parallel loader of the flights xml.
+ *
+ * The memory mapped file is split at the airline elements, the shards are parsed with StAX on a worker pool
+ * into their own flight tables, which are merged in the order of the file. Cities are shared between the
+ * workers through a concurrent map, so every city is created once.
+ * Every airline element is validated against the schema by the worker that parses it, so the file is
+ * read once only. The root element and the uniqueness of the flight ids over the whole file are checked
+ * separately, other content between the airline elements is not validated.
+ *
+ * The scan of the shards skips comments and CDATA sections, so airline tags in them do not split the file.
+ * Files with non ascii compatible encoding are loaded by the SAX parser.
+ *
+ * @author zamek
+ *
+ */
+public class ShardedFactory extends XMLFactory {
+	private final static long WINDOW = 1L << 30;
+	private final static int OVERLAP = 256;
+	private final static byte[] OPEN_TAG = ('<' + Airline.NODE_NAME).getBytes(StandardCharsets.US_ASCII);
+	private final static byte[] CLOSE_TAG = ("</" + Airline.NODE_NAME).getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+	private final static byte[] COMMENT_START = "<!--".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+	private final static byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+	private final static byte[] CDATA_START = "<![CDATA[".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+	private final static byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+
+	private final int threads;
+
+	public ShardedFactory(String flightsXML) {
+		this(flightsXML, true);
+	}
+
+	/**
+	 * Constructor of the factory, uses a thread for every processor
+	 *
+	 * @param flightsXML name of the xml file
+	 * @param validate validate the xml against the schema while loading, can be false for trusted feeds
+	 */
+	public ShardedFactory(String flightsXML, boolean validate) {
+		this(flightsXML, validate, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor of the factory
+	 *
+	 * @param flightsXML name of the xml file
+	 * @param validate validate the xml against the schema while loading, can be false for trusted feeds
+	 * @param threads number of the worker threads
+	 */
+	public ShardedFactory(String flightsXML, boolean validate, int threads) {
+		super(flightsXML, validate);
+		this.threads = Math.max(1, threads);
+		this.cities = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	protected City createCity(String name) {
+		return name == null ? null : this.cities.computeIfAbsent(name, this::newCity);
+	}
+
+	@Override
+	public void loadXml() {
+		List<long[]> shards;
+		String encoding;
+		try {
+			encoding = readEncoding();
+			shards = isAsciiCompatible(encoding) ? findShards() : new ArrayList<>();
+		}
+		catch (Exception e) {
+			xmlError("XML loading error:"+e.getMessage()); //$NON-NLS-1$
+			return;
+		}
+		if (shards.isEmpty()) {
+			super.loadXml();
+			return;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+		try (FileChannel channel = FileChannel.open(Paths.get(this.flightsXML), StandardOpenOption.READ)) {
+			awaitPopulation();
+			List<Future<FlightTable>> parsed = new ArrayList<>(shards.size());
+			for (long[] shard : shards)
+				parsed.add(pool.submit(parseShard(channel, shard[0], shard[1], encoding)));
+
+			Set<String> ids = this.validate ? new HashSet<>() : null;
+			for (Future<FlightTable> shard : parsed) {
+				FlightTable shardTable = shard.get();
+				if (ids != null)
+					checkIds(shardTable, ids);
+				this.airlines.addAll(shardTable.getAirlines());
+				this.table.addAll(shardTable);
+			}
+		}
+		catch (ExecutionException e) {
+			xmlError("XML loading error:"+e.getCause().getMessage()); //$NON-NLS-1$
+		}
+		catch (Exception e) {
+			xmlError("XML loading error:"+e.getMessage()); //$NON-NLS-1$
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		describeCities();
+	}
+
+	/**
+	 * Read the encoding of the xml, the root element is checked too if the xml is validated
+	 *
+	 * @return name of the encoding
+	 * @throws IOException if the file cannot be read
+	 * @throws XMLStreamException if the prolog of the xml is malformed
+	 */
+	private String readEncoding() throws IOException, XMLStreamException {
+		try (InputStream in = new FileInputStream(this.flightsXML)) {
+			XMLStreamReader reader = newInputFactory().createXMLStreamReader(in);
+			String encoding = reader.getEncoding();
+			if (this.validate) {
+				reader.nextTag();
+				if (!Airline.NODE_AIRLINES.equals(reader.getLocalName()))
+					xmlError("Root element of the xml is not "+Airline.NODE_AIRLINES); //$NON-NLS-1$
+			}
+			reader.close();
+			return encoding == null ? StandardCharsets.UTF_8.name() : encoding;
+		}
+	}
+
+	private static boolean isAsciiCompatible(String encoding) {
+		String e = encoding.toUpperCase(Locale.ROOT);
+		return !e.startsWith("UTF-16") && !e.startsWith("UTF-32"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static XMLInputFactory newInputFactory() {
+		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		return inputFactory;
+	}
+
+	/**
+	 * Find the offsets of the airline elements in the file
+	 *
+	 * @return start and end offsets of the airline elements
+	 * @throws IOException if the file cannot be read
+	 */
+	private List<long[]> findShards() throws IOException {
+		List<long[]> shards = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(Paths.get(this.flightsXML), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long start = -1;
+			byte[] skipTo = null; // end of the comment or CDATA section being skipped
+			int i = 0;
+			for (long position = 0; position < size; position += WINDOW, i -= WINDOW) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, WINDOW + OVERLAP));
+				int limit = (int) Math.min(size - position, WINDOW);
+				// tags starting in the window are matched only, the overlap is the rest of the tag
+				for (; i < limit; ++i) {
+					if (skipTo != null) {
+						if (startsWith(buffer, i, skipTo)) {
+							i += skipTo.length - 1;
+							skipTo = null;
+						}
+						continue;
+					}
+					if (buffer.get(i) != '<')
+						continue;
+
+					if (startsWith(buffer, i, COMMENT_START)) {
+						skipTo = COMMENT_END;
+						i += COMMENT_START.length - 1;
+					}
+					else if (startsWith(buffer, i, CDATA_START)) {
+						skipTo = CDATA_END;
+						i += CDATA_START.length - 1;
+					}
+					else if (matches(buffer, i, OPEN_TAG))
+						start = position + i;
+					else if (start >= 0 && matches(buffer, i, CLOSE_TAG)) {
+						int end = i + CLOSE_TAG.length;
+						while (end < buffer.limit() && buffer.get(end) != '>')
+							++end;
+						shards.add(new long[] { start, position + end + 1 });
+						start = -1;
+					}
+				}
+			}
+		}
+		return shards;
+	}
+
+	private static boolean startsWith(ByteBuffer buffer, int at, byte[] bytes) {
+		if (at + bytes.length > buffer.limit())
+			return false;
+
+		for (int i = 0; i < bytes.length; ++i)
+			if (buffer.get(at + i) != bytes[i])
+				return false;
+
+		return true;
+	}
+
+	private static boolean matches(ByteBuffer buffer, int at, byte[] tag) {
+		if (at + tag.length >= buffer.limit() || !startsWith(buffer, at, tag))
+			return false;
+
+		byte next = buffer.get(at + tag.length);
+		return next == '>' || next == '/' || Character.isWhitespace(next);
+	}
+
+	private Callable<FlightTable> parseShard(FileChannel channel, long start, long end, String encoding) {
+		return () -> {
+			FlightTable shardTable = new FlightTable();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			XMLStreamReader reader = newInputFactory().createXMLStreamReader(new ByteBufferInputStream(buffer), encoding);
+			StaxValidator validator = this.validate ? new StaxValidator(getSchema(), reader, this) : null;
+			Airline current = null;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (validator != null)
+					validator.accept(event);
+				if (event != XMLStreamConstants.START_ELEMENT)
+					continue;
+
+				String name = reader.getLocalName();
+				if (Airline.NODE_NAME.equals(name)) {
+					current = Airline.valueOf(reader.getAttributeValue(null, Airline.ATTR_NAME));
+					if (current != null)
+						shardTable.addAirline(current);
+				}
+				else if (Flight.NODE_NAME.equals(name))
+					addFlight(shardTable, reader.getAttributeValue(null, Flight.ATTR_ID), reader.getAttributeValue(null, Flight.ATTR_FROM),
+							  reader.getAttributeValue(null, Flight.ATTR_TO), reader.getAttributeValue(null, Flight.ATTR_DISTANCE),
+							  reader.getAttributeValue(null, Flight.ATTR_DEPARTURE), reader.getAttributeValue(null, Flight.ATTR_DURING),
+							  current);
+			}
+			reader.close();
+			return shardTable;
+		};
+	}
+
+	/**
+	 * Check the flight ids of a shard are not used by the previous shards, the schema validation
+	 * of a shard sees its own ids only
+	 *
+	 * @param shardTable flights of the shard
+	 * @param ids ids of the previous shards, the ids of the shard are added
+	 */
+	private void checkIds(FlightTable shardTable, Set<String> ids) {
+		for (int row = 0; row < shardTable.size(); ++row)
+			if (!ids.add(shardTable.getId(row)))
+				xmlError("Duplicate flight id:"+shardTable.getId(row)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Input stream of a mapped shard
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!this.buffer.hasRemaining())
+				return -1;
+
+			int n = Math.min(len, this.buffer.remaining());
+			this.buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+	}
+}
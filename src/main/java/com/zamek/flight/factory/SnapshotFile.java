@@ -0,0 +1,339 @@
+package com.zamek.flight.factory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.City;
+import com.zamek.flight.FlightTable;
+
+/**
+ * Binary snapshot of the loaded flights.
+ *
+ * Layout of the file, all numbers are big endian:
+ * <ul>
+ * <li>magic, version</li>
+ * <li>modification time and length of every source file</li>
+ * <li>string table of the names of cities and airlines and the flight ids</li>
+ * <li>cities: name, population, latitude, longitude, ascii name</li>
+ * <li>airlines, the ones with flights first</li>
+ * <li>flights as primitive columns</li>
+ * <li>adjacency of all airlines: first edge of every city, target and flight of every edge</li>
+ * <li>CRC32 of the preceding bytes</li>
+ * </ul>
+ * The file is opened memory mapped, a snapshot is not used if any source file is changed after it was written.
+ *
+ * @author zamek
+ *
+ */
+public class SnapshotFile {
+	public final static int MAGIC = 0x464C5350; // FLSP
+	public final static int VERSION = 2;
+	private final static int CHECKSUM_SIZE = Long.BYTES;
+
+	private final FlightTable table;
+	private final Set<Airline> airlines;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] order;
+
+	private SnapshotFile(FlightTable table, Set<Airline> airlines, int[] offsets, int[] targets, int[] order) {
+		this.table = table;
+		this.airlines = airlines;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.order = order;
+	}
+
+	/**
+	 * Write a snapshot, the file is replaced atomically
+	 *
+	 * @param fileName name of the snapshot
+	 * @param sources names of the files the flights are loaded from
+	 * @param table the flights
+	 * @param airlines all airlines, the ones without flights too
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(String fileName, String[] sources, FlightTable table, Set<Airline> airlines) throws IOException {
+		Path target = Paths.get(fileName).toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+		try {
+			CRC32 crc = new CRC32();
+			try (CheckedOutputStream checked = new CheckedOutputStream(Files.newOutputStream(temp), crc);
+				 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(sources.length);
+				for (String source : sources) {
+					File f = new File(source);
+					out.writeLong(f.lastModified());
+					out.writeLong(f.length());
+				}
+				writeBody(out, table, airlines);
+				out.flush();
+				out.writeLong(crc.getValue());
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static void writeBody(DataOutputStream out, FlightTable table, Set<Airline> airlines) throws IOException {
+		List<Airline> allAirlines = new ArrayList<>(table.getAirlines());
+		for (Airline a : airlines)
+			if (!allAirlines.contains(a))
+				allAirlines.add(a);
+
+		Map<String, Integer> strings = new HashMap<>();
+		List<String> stringTable = new ArrayList<>();
+		int cityCount = table.getCities().size();
+		for (int c = 0; c < cityCount; ++c) {
+			intern(table.getCity(c).getName(), strings, stringTable);
+			if (table.getAsciiName(c) != null)
+				intern(table.getAsciiName(c), strings, stringTable);
+		}
+		for (Airline a : allAirlines)
+			intern(a.getName(), strings, stringTable);
+		for (int row = 0; row < table.size(); ++row)
+			intern(table.getId(row), strings, stringTable);
+
+		out.writeInt(stringTable.size());
+		for (String s : stringTable) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		out.writeInt(cityCount);
+		for (int c = 0; c < cityCount; ++c) {
+			out.writeInt(strings.get(table.getCity(c).getName()).intValue());
+			out.writeInt(table.getPopulation(c));
+			out.writeDouble(table.getLatitude(c));
+			out.writeDouble(table.getLongitude(c));
+			out.writeInt(table.getAsciiName(c) == null ? -1 : strings.get(table.getAsciiName(c)).intValue());
+		}
+
+		out.writeInt(allAirlines.size());
+		out.writeInt(table.getAirlines().size());
+		for (Airline a : allAirlines)
+			out.writeInt(strings.get(a.getName()).intValue());
+
+		int size = table.size();
+		out.writeInt(size);
+		for (int row = 0; row < size; ++row)
+			out.writeInt(strings.get(table.getId(row)).intValue());
+		for (int row = 0; row < size; ++row)
+			out.writeInt(table.getSource(row));
+		for (int row = 0; row < size; ++row)
+			out.writeInt(table.getDestination(row));
+		for (int row = 0; row < size; ++row)
+			out.writeShort(table.getAirline(row));
+		for (int row = 0; row < size; ++row)
+			out.writeInt(table.getDistance(row));
+		for (int row = 0; row < size; ++row)
+			out.writeInt(table.getDeparture(row));
+		for (int row = 0; row < size; ++row)
+			out.writeInt(table.getDuration(row));
+
+		// stable counting sort of the rows by source, the same order as a built adjacency
+		int[] offsets = new int[table.getCities().size() + 1];
+		for (int row = 0; row < size; ++row)
+			++offsets[table.getSource(row) + 1];
+		for (int n = 0; n + 1 < offsets.length; ++n)
+			offsets[n + 1] += offsets[n];
+		int[] next = offsets.clone();
+		int[] order = new int[size];
+		for (int row = 0; row < size; ++row)
+			order[next[table.getSource(row)]++] = row;
+
+		for (int offset : offsets)
+			out.writeInt(offset);
+		for (int e = 0; e < size; ++e)
+			out.writeInt(table.getDestination(order[e]));
+		for (int e = 0; e < size; ++e)
+			out.writeInt(order[e]);
+	}
+
+	private static void intern(String s, Map<String, Integer> strings, List<String> stringTable) {
+		if (strings.putIfAbsent(s, Integer.valueOf(stringTable.size())) == null)
+			stringTable.add(s);
+	}
+
+	/**
+	 * Open a snapshot if it is newer than its sources
+	 *
+	 * @param fileName name of the snapshot
+	 * @param sources names of the files the flights are loaded from, in the order of writing
+	 * @return the snapshot or null if it does not exist or any source is changed
+	 * @throws IOException if the snapshot cannot be read, or it is corrupt or of an other version
+	 */
+	public static SnapshotFile open(String fileName, String[] sources) throws IOException {
+		Path path = Paths.get(fileName);
+		if (!Files.isRegularFile(path))
+			return null;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < 3 * Integer.BYTES + CHECKSUM_SIZE || size > Integer.MAX_VALUE)
+				throw new IOException("Invalid snapshot size"); //$NON-NLS-1$
+
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Not a snapshot file"); //$NON-NLS-1$
+			if (buffer.getInt() != VERSION)
+				throw new IOException("Unsupported snapshot version"); //$NON-NLS-1$
+
+			if (buffer.getInt() != sources.length)
+				return null;
+			for (String source : sources) {
+				File f = new File(source);
+				if (f.lastModified() > buffer.getLong() || f.length() != buffer.getLong())
+					return null;
+			}
+
+			ByteBuffer body = buffer.duplicate();
+			// positioning through Buffer runs on java 8 too
+			((Buffer) body).position(0).limit((int) size - CHECKSUM_SIZE);
+			CRC32 crc = new CRC32();
+			crc.update(body);
+			if (crc.getValue() != buffer.getLong((int) size - CHECKSUM_SIZE))
+				throw new IOException("Snapshot checksum error"); //$NON-NLS-1$
+
+			((Buffer) buffer).limit((int) size - CHECKSUM_SIZE);
+			return readBody(buffer);
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("Corrupt snapshot", e); //$NON-NLS-1$
+		}
+	}
+
+	private static SnapshotFile readBody(ByteBuffer buffer) {
+		String[] strings = new String[buffer.getInt()];
+		for (int i = 0; i < strings.length; ++i) {
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		int cityCount = buffer.getInt();
+		List<City> cities = new ArrayList<>(cityCount);
+		int[] populations = new int[cityCount];
+		double[] latitudes = new double[cityCount];
+		double[] longitudes = new double[cityCount];
+		String[] asciiNames = new String[cityCount];
+		for (int c = 0; c < cityCount; ++c) {
+			cities.add(City.valueOf(strings[buffer.getInt()]));
+			populations[c] = buffer.getInt();
+			latitudes[c] = buffer.getDouble();
+			longitudes[c] = buffer.getDouble();
+			int asciiName = buffer.getInt();
+			asciiNames[c] = asciiName < 0 ? null : strings[asciiName];
+		}
+
+		int airlineCount = buffer.getInt();
+		int tableAirlines = buffer.getInt();
+		List<Airline> airlines = new ArrayList<>(airlineCount);
+		for (int i = 0; i < airlineCount; ++i)
+			airlines.add(Airline.valueOf(strings[buffer.getInt()]));
+
+		int size = buffer.getInt();
+		String[] ids = new String[size];
+		for (int row = 0; row < size; ++row)
+			ids[row] = strings[buffer.getInt()];
+		int[] sources = readInts(buffer, size);
+		int[] destinations = readInts(buffer, size);
+		short[] airlineColumn = new short[size];
+		buffer.asShortBuffer().get(airlineColumn);
+		((Buffer) buffer).position(buffer.position() + size * Short.BYTES);
+		int[] distances = readInts(buffer, size);
+		int[] departures = readInts(buffer, size);
+		int[] durations = readInts(buffer, size);
+		FlightTable table = new FlightTable(cities, airlines.subList(0, tableAirlines), ids, sources, destinations,
+				airlineColumn, distances, departures, durations);
+		for (int c = 0; c < cityCount; ++c)
+			table.addCity(cities.get(c), populations[c], latitudes[c], longitudes[c], asciiNames[c]);
+
+		int[] offsets = readInts(buffer, cities.size() + 1);
+		int[] targets = readInts(buffer, size);
+		int[] order = readInts(buffer, size);
+		if (buffer.hasRemaining())
+			throw new IllegalArgumentException("Trailing bytes in snapshot"); //$NON-NLS-1$
+
+		return new SnapshotFile(table, Collections.unmodifiableSet(new LinkedHashSet<>(airlines)), offsets, targets, order);
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int size) {
+		int[] values = new int[size];
+		buffer.asIntBuffer().get(values);
+		((Buffer) buffer).position(buffer.position() + size * Integer.BYTES);
+		return values;
+	}
+
+	/**
+	 * Getter for the flights
+	 *
+	 * @return table of the flights
+	 */
+	public FlightTable getFlightTable() {
+		return this.table;
+	}
+
+	/**
+	 * Getter for the airlines
+	 *
+	 * @return all airlines of the snapshot
+	 */
+	public Set<Airline> getAirlines() {
+		return this.airlines;
+	}
+
+	/**
+	 * Getter for the adjacency of all airlines
+	 *
+	 * @return first edge of every city and the number of edges at the end
+	 */
+	public int[] getOffsets() {
+		return this.offsets;
+	}
+
+	/**
+	 * Getter for the adjacency of all airlines
+	 *
+	 * @return destination city of every edge
+	 */
+	public int[] getTargets() {
+		return this.targets;
+	}
+
+	/**
+	 * Getter for the adjacency of all airlines
+	 *
+	 * @return row of the flight of every edge
+	 */
+	public int[] getOrder() {
+		return this.order;
+	}
+}
@@ -0,0 +1,92 @@
+package com.zamek.flight.factory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.Flight;
+
+/**
+ * Streaming loader of the flights xml.
+ *
+ * Pulls the flight elements with StAX directly into the columnar flight table, so the heap usage
+ * depends only on the number of flights and cities, not on the size of the document.
+ * The schema validation gets the events of the same reader, so the document is read once only.
+ *
+ * @author zamek
+ *
+ */
+public class StaxFactory extends XMLFactory {
+	private final static int PROGRESS_STEP = 100000;
+	private final static int BUFFER_SIZE = 64 * 1024;
+
+	public StaxFactory(String flightsXML) {
+		this(flightsXML, true);
+	}
+
+	/**
+	 * Constructor of the factory
+	 *
+	 * @param flightsXML name of the xml file
+	 * @param validate validate the xml against the schema while loading, can be false for trusted feeds
+	 */
+	public StaxFactory(String flightsXML, boolean validate) {
+		super(flightsXML, validate);
+	}
+
+	@Override
+	public void loadXml() {
+		try {
+			awaitPopulation();
+			File file = new File(this.flightsXML);
+			long total = Math.max(1, file.length());
+			XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+			inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			try (FileInputStream fis = new FileInputStream(file); InputStream in = new BufferedInputStream(fis, BUFFER_SIZE)) {
+				XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+				StaxValidator validator = this.validate ? new StaxValidator(getSchema(), reader, this) : null;
+				Airline current = null;
+				int count = 0;
+				while (reader.hasNext()) {
+					int event = reader.next();
+					if (validator != null)
+						validator.accept(event);
+					if (event == XMLStreamConstants.END_ELEMENT && Flight.NODE_FLIGHTS.equals(reader.getLocalName())) {
+						current = null;
+						continue;
+					}
+					if (event != XMLStreamConstants.START_ELEMENT)
+						continue;
+
+					String name = reader.getLocalName();
+					if (Airline.NODE_NAME.equals(name)) {
+						current = Airline.valueOf(reader.getAttributeValue(null, Airline.ATTR_NAME));
+						if (current != null)
+							this.airlines.add(current);
+					}
+					else if (Flight.NODE_NAME.equals(name)) {
+						addFlight(reader.getAttributeValue(null, Flight.ATTR_ID), reader.getAttributeValue(null, Flight.ATTR_FROM),
+								  reader.getAttributeValue(null, Flight.ATTR_TO), reader.getAttributeValue(null, Flight.ATTR_DISTANCE),
+								  reader.getAttributeValue(null, Flight.ATTR_DEPARTURE), reader.getAttributeValue(null, Flight.ATTR_DURING),
+								  current);
+						if (++count % PROGRESS_STEP == 0)
+							getLogger().info(String.format("%d flights loaded (%d%%)", Integer.valueOf(count),  //$NON-NLS-1$
+															Long.valueOf(fis.getChannel().position() * 100 / total)));
+					}
+				}
+				reader.close();
+			}
+		}
+		catch (Exception e) {
+			xmlError("XML loading error:"+e.getMessage()); //$NON-NLS-1$
+		}
+		describeCities();
+	}
+}
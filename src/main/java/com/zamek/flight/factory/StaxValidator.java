@@ -0,0 +1,98 @@
+package com.zamek.flight.factory;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.validation.Schema;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Schema validation of a StAX stream in the same pass as it is loaded.
+ *
+ * The events of the reader are forwarded to a validator handler of the schema, so the document
+ * is read once only. The errors are reported to the given error handler.
+ *
+ * @author zamek
+ *
+ */
+final class StaxValidator {
+	private final static String CDATA = "CDATA"; //$NON-NLS-1$
+
+	private final XMLStreamReader reader;
+	private final ValidatorHandler handler;
+	private final AttributesImpl attributes = new AttributesImpl();
+
+	/**
+	 * Constructor of the validator, the reader must be at the start of the document
+	 *
+	 * @param schema the schema
+	 * @param reader the reader of the document
+	 * @param errorHandler receives the validation errors
+	 * @throws SAXException if the error handler stops the validation
+	 */
+	StaxValidator(Schema schema, XMLStreamReader reader, ErrorHandler errorHandler) throws SAXException {
+		this.reader = reader;
+		this.handler = schema.newValidatorHandler();
+		this.handler.setErrorHandler(errorHandler);
+		this.handler.startDocument();
+	}
+
+	/**
+	 * Validate the current event of the reader, it must be called for every event
+	 *
+	 * @param event the event returned by the reader
+	 * @throws SAXException if the error handler stops the validation
+	 */
+	void accept(int event) throws SAXException {
+		switch (event) {
+		case XMLStreamConstants.START_ELEMENT:
+			startElement();
+			break;
+		case XMLStreamConstants.END_ELEMENT:
+			endElement();
+			break;
+		case XMLStreamConstants.CHARACTERS:
+		case XMLStreamConstants.CDATA:
+		case XMLStreamConstants.SPACE:
+			this.handler.characters(this.reader.getTextCharacters(), this.reader.getTextStart(), this.reader.getTextLength());
+			break;
+		case XMLStreamConstants.END_DOCUMENT:
+			this.handler.endDocument();
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void startElement() throws SAXException {
+		for (int i = 0; i < this.reader.getNamespaceCount(); ++i)
+			this.handler.startPrefixMapping(nonNull(this.reader.getNamespacePrefix(i)), nonNull(this.reader.getNamespaceURI(i)));
+
+		this.attributes.clear();
+		for (int i = 0; i < this.reader.getAttributeCount(); ++i) {
+			String local = this.reader.getAttributeLocalName(i);
+			this.attributes.addAttribute(nonNull(this.reader.getAttributeNamespace(i)), local,
+										 qName(this.reader.getAttributePrefix(i), local), CDATA, this.reader.getAttributeValue(i));
+		}
+		String local = this.reader.getLocalName();
+		this.handler.startElement(nonNull(this.reader.getNamespaceURI()), local, qName(this.reader.getPrefix(), local), this.attributes);
+	}
+
+	private void endElement() throws SAXException {
+		String local = this.reader.getLocalName();
+		this.handler.endElement(nonNull(this.reader.getNamespaceURI()), local, qName(this.reader.getPrefix(), local));
+		for (int i = 0; i < this.reader.getNamespaceCount(); ++i)
+			this.handler.endPrefixMapping(nonNull(this.reader.getNamespacePrefix(i)));
+	}
+
+	private static String qName(String prefix, String local) {
+		return prefix == null || prefix.isEmpty() ? local : prefix + ':' + local;
+	}
+
+	private static String nonNull(String s) {
+		return s == null ? "" : s; //$NON-NLS-1$
+	}
+}
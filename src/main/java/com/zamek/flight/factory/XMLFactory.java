@@ -1,43 +1,59 @@
 package com.zamek.flight.factory;
 
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.File;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
 
+import javax.xml.XMLConstants;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
 
 import org.xml.sax.Attributes;
-import org.xml.sax.ErrorHandler;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
-import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
 import com.zamek.flight.Airline;
 import com.zamek.flight.City;
 import com.zamek.flight.Flight;
+import com.zamek.flight.FlightTable;
 import com.zamek.flight.util.HasLogger;
 
 public class XMLFactory extends DefaultHandler implements HasLogger {
-	private final static String POPULATION_FILE = "data/simplemaps-worldcities-basic.csv"; //$NON-NLS-1$
+	public final static String POPULATION_FILE = "data/simplemaps-worldcities-basic.csv"; //$NON-NLS-1$
+	private final static String SCHEMA_FILE = "data/flights.xsd"; //$NON-NLS-1$
+	private static Schema schema;
 	
-	private String flightsXML;
-	protected List<String> populationList;
+	protected String flightsXML;
+	protected boolean validate;
+	protected PopulationFile population;
 	private Thread populationLoader;
-	private Set<Airline> airlines = new HashSet<>();
+	protected Set<Airline> airlines = new HashSet<>();
 	private Airline currentAirline;
-	private List<City> cities = new ArrayList<>(); 
-	private List<Flight> flights = new ArrayList<>();
+	protected Map<String, City> cities = new HashMap<>();
+	protected FlightTable table = new FlightTable();
+	private List<Flight> flights;
+	private volatile boolean failed;
 	
 	public XMLFactory(String flightsXML) {
+		this(flightsXML, true);
+	}
+
+	/**
+	 * Constructor of the factory
+	 * 
+	 * @param flightsXML name of the xml file
+	 * @param validate validate the xml against the schema while loading, can be false for trusted feeds
+	 */
+	public XMLFactory(String flightsXML, boolean validate) {
 		this.flightsXML = flightsXML;
+		this.validate = validate;
 	}
 
 	public Set<Airline> getAirlines() {
@@ -45,20 +61,36 @@ public class XMLFactory extends DefaultHandler implements HasLogger {
 	}
 	
 	public List<City> getCities() {
-		return this.cities;
+		return this.table.getCities();
 	}
 	
+	/**
+	 * Getter for the loaded flights, views of the rows of the table are created at the first call
+	 * 
+	 * @return list of flights
+	 */
 	public List<Flight> getFlights() {
+		if (this.flights == null)
+			this.flights = this.table.toList();
 		return this.flights;
 	}
 	
+	/**
+	 * Getter for the loaded flights in columnar form
+	 * 
+	 * @return table of the flights
+	 */
+	public FlightTable getFlightTable() {
+		return this.table;
+	}
+	
 	public void loadPopulation() {
 		this.populationLoader = new Thread() {
 			
 			@Override
 			public void run() {		
 				try {
-					XMLFactory.this.populationList = Files.readAllLines(Paths.get(POPULATION_FILE));
+					XMLFactory.this.population = PopulationFile.open(POPULATION_FILE);
 				}
 				catch (Exception e) {
 					getLogger().error("Population reading error:"+e.getMessage()); //$NON-NLS-1$
@@ -69,47 +101,94 @@ public class XMLFactory extends DefaultHandler implements HasLogger {
 		this.populationLoader.start();
 	}
 	
+	/**
+	 * Wait for the population database
+	 * 
+	 * @throws InterruptedException if waiting is interrupted
+	 */
+	protected void awaitPopulation() throws InterruptedException {
+		this.populationLoader.join();
+	}
+	
 	public void loadXml() {
 		try {
-			this.populationLoader.join();
+			awaitPopulation();
 			SAXParserFactory parserFactory = SAXParserFactory.newInstance();
-			parserFactory.setValidating(true);
 			parserFactory.setNamespaceAware(true);
+			if (this.validate)
+				parserFactory.setSchema(getSchema());
 			SAXParser parser = parserFactory.newSAXParser();
-			parser.setProperty("http://java.sun.com/xml/jaxp/properties/schemaLanguage", "http://www.w3.org/2001/XMLSchema"); //$NON-NLS-1$ //$NON-NLS-2$
-			XMLReader reader = parser.getXMLReader();
-			reader.setErrorHandler(new ErrorHandler() {
-				
-				@Override
-				public void warning(SAXParseException exception) throws SAXException {
-					getLogger().warn(exception.getMessage());
-				}
-				
-				@Override
-				public void fatalError(SAXParseException exception) throws SAXException {
-					getLogger().error(exception.getMessage());
-					
-				}
-				
-				@Override
-				public void error(SAXParseException exception) throws SAXException {
-					getLogger().error(exception.getMessage());
-				}
-			});
-			
-			reader.parse(new InputSource(this.flightsXML));
 			parser.parse(this.flightsXML, this);
 		}
 		catch (Exception e) {
-			getLogger().error("XML loading error:"+e.getMessage()); //$NON-NLS-1$
+			xmlError("XML loading error:"+e.getMessage()); //$NON-NLS-1$
 		}
+		describeCities();
+	}
+	
+	/**
+	 * Log an error of the xml, the loaded flights are incomplete after it
+	 * 
+	 * @param message the error
+	 */
+	protected void xmlError(String message) {
+		this.failed = true;
+		getLogger().error(message);
+	}
+	
+	/**
+	 * Check the xml is loaded without errors
+	 * 
+	 * @return true if the xml was not readable or not valid
+	 */
+	public boolean hasErrors() {
+		return this.failed;
+	}
+	
+	/**
+	 * Check the population database is loaded, it is valid after loading the xml
+	 * 
+	 * @return false if the population file was not readable, no city is found then
+	 */
+	public boolean hasPopulation() {
+		return this.population != null;
+	}
+	
+	@Override
+	public void warning(SAXParseException exception) throws SAXException {
+		getLogger().warn(exception.getMessage());
+	}
+	
+	@Override
+	public void error(SAXParseException exception) throws SAXException {
+		xmlError(exception.getMessage());
+	}
+	
+	@Override
+	public void fatalError(SAXParseException exception) throws SAXException {
+		xmlError(exception.getMessage());
+		throw exception;
+	}
+	
+	/**
+	 * Get the compiled schema of the flights xml, it is compiled at the first call only
+	 * 
+	 * @return the schema
+	 * @throws SAXException if the schema cannot be compiled
+	 */
+	protected static synchronized Schema getSchema() throws SAXException {
+		if (schema==null) 
+			schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(new File(SCHEMA_FILE));
+		
+		return schema;
 	}
 	
 	@Override
 	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException, DateTimeParseException {
 		switch (qName) {
-		case Airline.NODE_NAME : this.currentAirline = new Airline(attributes.getValue(Airline.ATTR_NAME));
-								 this.airlines.add(this.currentAirline);
+		case Airline.NODE_NAME : this.currentAirline = Airline.valueOf(attributes.getValue(Airline.ATTR_NAME));
+								 if (this.currentAirline != null)
+									 this.airlines.add(this.currentAirline);
 				return;
 
 		case Flight.NODE_NAME : 
@@ -128,54 +207,126 @@ public class XMLFactory extends DefaultHandler implements HasLogger {
 	}
 	
 	private void createFlight(Attributes attributes) throws DateTimeParseException {
-		City from = createCity(attributes.getValue(Flight.ATTR_FROM));
+		addFlight(attributes.getValue(Flight.ATTR_ID), attributes.getValue(Flight.ATTR_FROM), attributes.getValue(Flight.ATTR_TO),
+				  attributes.getValue(Flight.ATTR_DISTANCE), attributes.getValue(Flight.ATTR_DEPARTURE), 
+				  attributes.getValue(Flight.ATTR_DURING), this.currentAirline);
+	}
+	
+	/**
+	 * Add a flight from the attributes of the xml to the table
+	 * 
+	 * @param id flight id
+	 * @param fromName name of the source city
+	 * @param toName name of the destination city
+	 * @param distance distance as a string
+	 * @param departure departure time as a string
+	 * @param during during time as a string
+	 * @param airline airline of the flight
+	 * @return true if the flight is added, false if the city or any attribute is missing
+	 * @throws DateTimeParseException if a time cannot be parsed
+	 * @throws NumberFormatException if the distance cannot be parsed
+	 */
+	protected boolean addFlight(String id, String fromName, String toName, String distance, String departure, String during, Airline airline) 
+			throws DateTimeParseException, NumberFormatException {
+		return addFlight(this.table, id, fromName, toName, distance, departure, during, airline);
+	}
+	
+	/**
+	 * Add a flight from the attributes of the xml to a table
+	 * 
+	 * @param flightTable the table
+	 * @param id flight id
+	 * @param fromName name of the source city
+	 * @param toName name of the destination city
+	 * @param distance distance as a string
+	 * @param departure departure time as a string
+	 * @param during during time as a string
+	 * @param airline airline of the flight
+	 * @return true if the flight is added, false if the city or any attribute is missing
+	 * @throws DateTimeParseException if a time cannot be parsed
+	 * @throws NumberFormatException if the distance cannot be parsed
+	 */
+	protected boolean addFlight(FlightTable flightTable, String id, String fromName, String toName, String distance, String departure, 
+			String during, Airline airline) throws DateTimeParseException, NumberFormatException {
+		City from = createCity(fromName);
 		if (from==null) 
-			return;
+			return false;
 		
-		City to  = createCity(attributes.getValue(Flight.ATTR_TO));
+		City to  = createCity(toName);
 		if (to==null)
-			return;
+			return false;
 		
-		Optional<Flight> fl = new Flight.Builder()
-								.id(attributes.getValue(Flight.ATTR_ID))
-								.departure(attributes.getValue(Flight.ATTR_DEPARTURE))
-								.during(attributes.getValue(Flight.ATTR_DURING))
-								.airLine(this.currentAirline)
-								.source(from)
-								.destination(to)
-								.distance(attributes.getValue(Flight.ATTR_DISTANCE))
-								.get();
-		if (!fl.isPresent())
-			return;
+		if (id==null || airline==null || distance==null || departure==null || during==null)
+			return false;
+		
+		int km = Integer.parseInt(distance);
+		if (km<=0)
+			return false;
 		
-		this.flights.add(fl.get());
+		flightTable.add(id, from, to, airline, km, FlightTable.parseSeconds(departure), FlightTable.parseSeconds(during));
+		return true;
 	}
 	
-	private City createCity(String name) {
-		int population = getPopulation(name);
-		if (population<=0) {
+	/**
+	 * Get the city of a name, every city is created once
+	 * 
+	 * @param name name of the city
+	 * @return the city or null if it is not in the population database
+	 */
+	protected City createCity(String name) {
+		City city = this.cities.get(name);
+		if (city!=null)
+			return city;
+		
+		city = newCity(name);
+		if (city!=null)
+			this.cities.put(name, city);
+		return city;
+	}
+	
+	/**
+	 * Create a new city of a name from the population database
+	 * 
+	 * @param name name of the city
+	 * @return the new city or null if it is not in the population database
+	 */
+	protected City newCity(String name) {
+		CityRecord record = getCityRecord(name);
+		if (record==null || record.getPopulation()<=0) {
 			getLogger().error(String.format("Population of %s is not found", name)); //$NON-NLS-1$
 			return null;
 		}
 		
-		City city = new City(name, population);
-		if (!this.cities.contains(city))
-			this.cities.add(city);
-		
-		return city;
+		return City.valueOf(name);
 	}
 	
-	private int getPopulation(String city) {
-		String pattern = "^"+city+",.*$"; //$NON-NLS-1$ //$NON-NLS-2$
-		Optional<String> line = this.populationList.stream().skip(1).filter(l->l.matches(pattern)).findFirst(); 
-		if (line.isPresent()) {
-			String[] fields = line.get().split(",");//$NON-NLS-1$
-			if (fields != null && fields.length>5)
-				if (fields[0].equals(city)) 
-					return Math.round(Float.parseFloat(fields[4]));
-				
+	/**
+	 * Set the population, coordinates and ascii name of the cities of the table from the population database
+	 */
+	protected void describeCities() {
+		if (this.population==null)
+			return;
+		
+		for (City city : this.table.getCities()) {
+			CityRecord record = this.population.find(city.getName());
+			if (record!=null)
+				this.table.addCity(city, record.getPopulation(), record.getLatitude(), record.getLongitude(), record.getAsciiName());
 		}
-		getLogger().error(String.format("Cannot find city %s in population database", city)); //$NON-NLS-1$
-		return -1;
+	}
+	
+	/**
+	 * Find a city in the population database by its name, or ignoring case by its name or ascii name
+	 * 
+	 * @param city name of the city
+	 * @return the record or null if not found
+	 */
+	protected CityRecord getCityRecord(String city) {
+		if (city==null)
+			return null;
+		
+		CityRecord record = this.population==null ? null : this.population.find(city);
+		if (record==null)
+			getLogger().error(String.format("Cannot find city %s in population database", city)); //$NON-NLS-1$
+		return record;
 	}
 }
@@ -0,0 +1,131 @@
+package com.zamek.flight.generator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.zamek.flight.Messages;
+import com.zamek.flight.factory.PopulationFile;
+import com.zamek.flight.factory.XMLFactory;
+
+/**
+ * Command line of the timetable generator.
+ *
+ * Usage of the generator:
+ * <ul>
+ * <li>--airlines &lt;COUNT&gt;   Number of airlines, default 10</li>
+ * <li>--cities &lt;COUNT&gt;     Number of the largest cities used, default 1000</li>
+ * <li>--flights &lt;COUNT&gt;    Number of flights</li>
+ * <li>--hubs &lt;COUNT&gt;       Number of hubs of an airline in hub networks, default 3</li>
+ * <li>--output &lt;FILENAME&gt;  Name of the generated XML file</li>
+ * <li>--seed &lt;NUMBER&gt;      Seed of the random numbers, default 42</li>
+ * <li>--topology &lt;mesh|hub_and_spoke&gt; Route network of the airlines, default mesh</li>
+ * </ul>
+ *
+ * @author zamek
+ *
+ */
+public class GeneratorApp {
+	private final static String COMMAND_LINE_SYNTAX = "java -cp Flight.jar " + GeneratorApp.class.getName(); //$NON-NLS-1$
+	private final static int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Construct the options of the generator
+	 *
+	 * @return options of the command line
+	 */
+	public static Options constructOptions() {
+		final Options options = new Options();
+		options.addOption(Option.builder().longOpt(Messages.getString("Generator.optOutput")) //$NON-NLS-1$
+				.desc(Messages.getString("Generator.optOutputDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("Generator.optFileName")) //$NON-NLS-1$
+				.required(true).build());
+		options.addOption(Option.builder().longOpt(Messages.getString("Generator.optFlights")) //$NON-NLS-1$
+				.desc(Messages.getString("Generator.optFlightsDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("Generator.optCount")) //$NON-NLS-1$
+				.required(true).build());
+		options.addOption(Option.builder().longOpt(Messages.getString("Generator.optAirlines")) //$NON-NLS-1$
+				.desc(Messages.getString("Generator.optAirlinesDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("Generator.optCount")) //$NON-NLS-1$
+				.required(false).build());
+		options.addOption(Option.builder().longOpt(Messages.getString("Generator.optCities")) //$NON-NLS-1$
+				.desc(Messages.getString("Generator.optCitiesDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("Generator.optCount")) //$NON-NLS-1$
+				.required(false).build());
+		options.addOption(Option.builder().longOpt(Messages.getString("Generator.optTopology")) //$NON-NLS-1$
+				.desc(Messages.getString("Generator.optTopologyDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("Generator.optTopologyName")) //$NON-NLS-1$
+				.required(false).build());
+		options.addOption(Option.builder().longOpt(Messages.getString("Generator.optHubs")) //$NON-NLS-1$
+				.desc(Messages.getString("Generator.optHubsDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("Generator.optCount")) //$NON-NLS-1$
+				.required(false).build());
+		options.addOption(Option.builder().longOpt(Messages.getString("Generator.optSeed")) //$NON-NLS-1$
+				.desc(Messages.getString("Generator.optSeedDetail")) //$NON-NLS-1$
+				.hasArg().argName(Messages.getString("Generator.optSeedName")) //$NON-NLS-1$
+				.required(false).build());
+		return options;
+	}
+
+	/**
+	 * Generate a feed by the command line
+	 *
+	 * @param args arguments of the command line
+	 * @return true if the feed is written
+	 */
+	public static boolean generate(String[] args) {
+		try {
+			CommandLine commandLine = new DefaultParser().parse(constructOptions(), args);
+			int cities = Integer.parseInt(commandLine.getOptionValue(Messages.getString("Generator.optCities"), //$NON-NLS-1$
+					String.valueOf(TimetableGenerator.DEFAULT_CITIES)));
+			TimetableGenerator generator = new TimetableGenerator(PopulationFile.open(XMLFactory.POPULATION_FILE), cities)
+					.flights(Long.parseLong(commandLine.getOptionValue(Messages.getString("Generator.optFlights")))) //$NON-NLS-1$
+					.airlines(Integer.parseInt(commandLine.getOptionValue(Messages.getString("Generator.optAirlines"), //$NON-NLS-1$
+							String.valueOf(TimetableGenerator.DEFAULT_AIRLINES))))
+					.topology(Topology.valueOf(commandLine.getOptionValue(Messages.getString("Generator.optTopology"), //$NON-NLS-1$
+							Topology.MESH.name()).toUpperCase(Locale.ROOT)))
+					.hubs(Integer.parseInt(commandLine.getOptionValue(Messages.getString("Generator.optHubs"), //$NON-NLS-1$
+							String.valueOf(TimetableGenerator.DEFAULT_HUBS))))
+					.seed(Long.parseLong(commandLine.getOptionValue(Messages.getString("Generator.optSeed"), //$NON-NLS-1$
+							String.valueOf(TimetableGenerator.DEFAULT_SEED))));
+			try (OutputStream out = new BufferedOutputStream(
+					Files.newOutputStream(Paths.get(commandLine.getOptionValue(Messages.getString("Generator.optOutput")))), BUFFER_SIZE)) { //$NON-NLS-1$
+				generator.write(out);
+			}
+			return true;
+		}
+		catch (ParseException e) {
+			System.err.println(Messages.getString("App.parseException") + e.getMessage()); //$NON-NLS-1$
+			new HelpFormatter().printHelp(COMMAND_LINE_SYNTAX, constructOptions());
+		}
+		catch (IllegalArgumentException e) { // wrong number or topology
+			System.err.println(Messages.getString("App.parseException") + e.getMessage()); //$NON-NLS-1$
+		}
+		catch (IOException | XMLStreamException e) {
+			System.err.println(Messages.getString("Generator.writeException") + e.getMessage()); //$NON-NLS-1$
+		}
+		return false;
+	}
+
+	/**
+	 * Main entry point of the generator
+	 *
+	 * @param args list of arguments
+	 */
+	public static void main(String[] args) {
+		if (!generate(args))
+			System.exit(1);
+	}
+}
@@ -0,0 +1,241 @@
+package com.zamek.flight.generator;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.zamek.flight.Airline;
+import com.zamek.flight.Flight;
+import com.zamek.flight.dijkstra.GreatCircle;
+import com.zamek.flight.factory.CityRecord;
+import com.zamek.flight.factory.PopulationFile;
+import com.zamek.flight.util.HasLogger;
+
+/**
+ * Generator of synthetic flights xml feeds from the population database.
+ *
+ * The cities are the largest ones of the database, a city is picked as an endpoint in proportion to
+ * its population. Flights are generated in pairs, a return flight leaves the destination after a
+ * turnaround time. Distances are great-circle distances, durations in minutes follow from a cruising speed.
+ * The feed is written while generated, so its size is not limited by the memory. The same settings and
+ * seed give the same feed.
+ *
+ * @author zamek
+ *
+ */
+public class TimetableGenerator implements HasLogger {
+	public final static int DEFAULT_CITIES = 1000;
+	public final static int DEFAULT_AIRLINES = 10;
+	public final static int DEFAULT_HUBS = 3;
+	public final static long DEFAULT_SEED = 42;
+	private final static String AIRLINES_NODE = "airlines"; //$NON-NLS-1$
+	private final static String FLIGHTS_NODE = "flights"; //$NON-NLS-1$
+	private final static int SPEED = 800;
+	private final static int TAXI_SECONDS = 30 * 60;
+	private final static int TURNAROUND_SECONDS = 45 * 60;
+	private final static int FIRST_DEPARTURE = 5 * 60 * 60;
+	private final static int LAST_DEPARTURE = 23 * 60 * 60;
+	private final static int SLOT_SECONDS = 5 * 60;
+	private final static int DAY_SECONDS = 24 * 60 * 60;
+	private final static long PROGRESS = 1000000;
+
+	private final CityRecord[] cities;
+	private final double[] cumulative;
+	private long flightCount;
+	private int airlineCount = DEFAULT_AIRLINES;
+	private int hubCount = DEFAULT_HUBS;
+	private Topology topology = Topology.MESH;
+	private long seed = DEFAULT_SEED;
+
+	/**
+	 * Constructor of the generator
+	 *
+	 * @param population the population database
+	 * @param cityCount number of the largest cities used
+	 * @throws IllegalArgumentException if there are not two cities
+	 */
+	public TimetableGenerator(PopulationFile population, int cityCount) {
+		// a name is loaded with its first line, so the other lines of a name are skipped
+		Map<String, CityRecord> byName = new LinkedHashMap<>();
+		for (int i = 0; i < population.size(); ++i) {
+			CityRecord record = population.get(i);
+			byName.putIfAbsent(record.getName(), record);
+		}
+		List<CityRecord> records = new ArrayList<>(byName.values());
+		records.sort(Comparator.comparingInt(CityRecord::getPopulation).reversed());
+		if (Math.min(cityCount, records.size()) < 2)
+			throw new IllegalArgumentException("At least two cities are needed"); //$NON-NLS-1$
+
+		this.cities = records.subList(0, Math.min(cityCount, records.size())).toArray(new CityRecord[0]);
+		this.cumulative = new double[this.cities.length];
+		double sum = 0;
+		for (int i = 0; i < this.cities.length; ++i)
+			this.cumulative[i] = sum += Math.max(1, this.cities[i].getPopulation());
+	}
+
+	/**
+	 * Setter for the number of flights
+	 *
+	 * @param flightCount number of flights, at least the number of airlines
+	 * @return the generator
+	 */
+	public TimetableGenerator flights(long flightCount) {
+		this.flightCount = flightCount;
+		return this;
+	}
+
+	/**
+	 * Setter for the number of airlines
+	 *
+	 * @param airlineCount number of airlines
+	 * @return the generator
+	 */
+	public TimetableGenerator airlines(int airlineCount) {
+		this.airlineCount = airlineCount;
+		return this;
+	}
+
+	/**
+	 * Setter for the route network
+	 *
+	 * @param topology route network of every airline
+	 * @return the generator
+	 */
+	public TimetableGenerator topology(Topology topology) {
+		this.topology = topology;
+		return this;
+	}
+
+	/**
+	 * Setter for the number of hubs of an airline in {@link Topology#HUB_AND_SPOKE} networks
+	 *
+	 * @param hubCount number of hubs
+	 * @return the generator
+	 */
+	public TimetableGenerator hubs(int hubCount) {
+		this.hubCount = hubCount;
+		return this;
+	}
+
+	/**
+	 * Setter for the seed of the random numbers
+	 *
+	 * @param seed the seed
+	 * @return the generator
+	 */
+	public TimetableGenerator seed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Write the feed
+	 *
+	 * @param out the stream of the xml, it is not closed
+	 * @throws XMLStreamException if the xml cannot be written
+	 * @throws IllegalArgumentException if the settings are invalid
+	 */
+	public void write(OutputStream out) throws XMLStreamException {
+		if (this.airlineCount < 1 || this.flightCount < this.airlineCount)
+			throw new IllegalArgumentException("Every airline needs a flight"); //$NON-NLS-1$
+		if (this.topology == Topology.HUB_AND_SPOKE && (this.hubCount < 1 || this.hubCount >= this.cities.length))
+			throw new IllegalArgumentException("Invalid number of hubs"); //$NON-NLS-1$
+
+		Random random = new Random(this.seed);
+		XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+		writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0"); //$NON-NLS-1$
+		writer.writeStartElement(AIRLINES_NODE);
+		long written = 0;
+		for (int a = 0; a < this.airlineCount; ++a) {
+			long count = this.flightCount / this.airlineCount + (a < this.flightCount % this.airlineCount ? 1 : 0);
+			int[] hubs = this.topology == Topology.HUB_AND_SPOKE ? pickHubs(random) : null;
+			writer.writeStartElement(Airline.NODE_NAME);
+			writer.writeAttribute(Airline.ATTR_NAME, String.format("Airline %d", Integer.valueOf(a + 1))); //$NON-NLS-1$
+			writer.writeStartElement(FLIGHTS_NODE);
+			for (long i = 0; i < count; i += 2) {
+				int from = hubs == null ? pick(random) : hubs[random.nextInt(hubs.length)];
+				int to = pick(random);
+				while (to == from)
+					to = pick(random);
+				int distance = distance(this.cities[from], this.cities[to]);
+				int duration = Math.min(DAY_SECONDS - 60, (TAXI_SECONDS + (int) (distance * 3600L / SPEED)) / 60 * 60);
+				int departure = FIRST_DEPARTURE + random.nextInt((LAST_DEPARTURE - FIRST_DEPARTURE) / SLOT_SECONDS) * SLOT_SECONDS;
+				String id = "F" + (written + i); //$NON-NLS-1$
+				writeFlight(writer, id, this.cities[from], this.cities[to], distance, departure, duration);
+				if (i + 1 < count) {
+					int back = (departure + duration + TURNAROUND_SECONDS + SLOT_SECONDS - 1) / SLOT_SECONDS * SLOT_SECONDS % DAY_SECONDS;
+					writeFlight(writer, id + 'R', this.cities[to], this.cities[from], distance, back, duration);
+				}
+				if ((written + i) / PROGRESS != (written + Math.min(count, i + 2)) / PROGRESS)
+					getLogger().info(String.format("%d flights generated", Long.valueOf(written + Math.min(count, i + 2)))); //$NON-NLS-1$
+			}
+			written += count;
+			writer.writeEndElement();
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+		writer.writeEndDocument();
+		writer.close();
+	}
+
+	private int[] pickHubs(Random random) {
+		int[] hubs = new int[this.hubCount];
+		for (int h = 0; h < hubs.length; ++h) {
+			hubs[h] = pick(random);
+			for (int i = 0; i < h; ++i)
+				if (hubs[i] == hubs[h]) {
+					hubs[h] = pick(random);
+					i = -1;
+				}
+		}
+		return hubs;
+	}
+
+	/**
+	 * Pick a city in proportion to its population
+	 */
+	private int pick(Random random) {
+		int i = Arrays.binarySearch(this.cumulative, random.nextDouble() * this.cumulative[this.cumulative.length - 1]);
+		return Math.min(this.cumulative.length - 1, i < 0 ? -i - 1 : i);
+	}
+
+	private static int distance(CityRecord from, CityRecord to) {
+		double km = GreatCircle.distance(Math.toRadians(from.getLatitude()), Math.toRadians(from.getLongitude()),
+				Math.toRadians(to.getLatitude()), Math.toRadians(to.getLongitude()));
+		return (int) Math.max(1, Math.round(km));
+	}
+
+	private static void writeFlight(XMLStreamWriter writer, String id, CityRecord from, CityRecord to, int distance,
+			int departure, int duration) throws XMLStreamException {
+		writer.writeEmptyElement(Flight.NODE_NAME);
+		writer.writeAttribute(Flight.ATTR_ID, id);
+		writer.writeAttribute(Flight.ATTR_FROM, from.getName());
+		writer.writeAttribute(Flight.ATTR_TO, to.getName());
+		writer.writeAttribute(Flight.ATTR_DISTANCE, String.valueOf(distance));
+		writer.writeAttribute(Flight.ATTR_DURING, formatTime(duration));
+		writer.writeAttribute(Flight.ATTR_DEPARTURE, formatTime(departure));
+	}
+
+	private static String formatTime(int seconds) {
+		char[] time = { '0', '0', ':', '0', '0', ':', '0', '0' };
+		putTwoDigits(time, 0, seconds / 3600);
+		putTwoDigits(time, 3, seconds / 60 % 60);
+		putTwoDigits(time, 6, seconds % 60);
+		return new String(time);
+	}
+
+	private static void putTwoDigits(char[] chars, int at, int value) {
+		chars[at] = (char) ('0' + value / 10);
+		chars[at + 1] = (char) ('0' + value % 10);
+	}
+}
@@ -0,0 +1,19 @@
+package com.zamek.flight.generator;
+
+/**
+ * Route networks of the generated airlines
+ *
+ * @author zamek
+ *
+ */
+public enum Topology {
+	/**
+	 * Every flight connects a hub of the airline with an other city
+	 */
+	HUB_AND_SPOKE,
+
+	/**
+	 * Flights connect any two cities, larger cities have more flights
+	 */
+	MESH
+}
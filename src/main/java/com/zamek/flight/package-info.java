@@ -25,11 +25,21 @@
  *  <ul>
  *      <li>--airline &lt;arg&gt;       With airline</li>
         <li>--airlines            Show airlines</li>
+        <li>--allpairs            Precompute the paths between all cities</li>
+        <li>--batch &lt;FILENAME|-&gt; Answer the source,destination[,airline] route queries of a file, or of the standard input with -</li>
         <li>--cities              Show cities</li>
         <li>-d                    Default task: find path between city of lowest population and city of highest population</li>
+        <li>--connection &lt;MINUTES&gt; Minimum connection time for --earliest</li>
         <li>--destination &lt;arg&gt;   Set destination</li>
+        <li>--earliest            Find the earliest arrival instead of the shortest path</li>
         <li>--flights             Show flights</li>
+        <li>--format &lt;csv|json&gt;  Format of the answers of --batch, default csv</li>
+        <li>--loader &lt;sax|stax|parallel&gt; Loader of the XML file, stax streams large files, parallel parses the airlines on all cores</li>
+        <li>--no-validate         Skip the schema validation of a trusted XML file</li>
+        <li>--server &lt;PORT&gt;       Serve the route, cities, airlines and flights queries over http on a port and reload the changed XML file</li>
+        <li>--snapshot &lt;FILENAME&gt; Binary snapshot of the loaded data, used instead of the XML file while it is up to date</li>
         <li>--source &lt;arg&gt;        Set source</li>
+        <li>--threads &lt;COUNT&gt;     Number of the worker threads of --server, default the number of processors</li>
         <li>--xml &lt;FILENAME&gt;      Name of the XML file</li>
 	</ul>
  * 
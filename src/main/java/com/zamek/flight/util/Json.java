@@ -0,0 +1,37 @@
+package com.zamek.flight.util;
+
+/**
+ * Helper for writing json
+ *
+ * @author zamek
+ *
+ */
+public final class Json {
+
+	private Json() {
+	}
+
+	/**
+	 * Append a string value, null is appended as null
+	 *
+	 * @param sb the json
+	 * @param value the value
+	 * @return the json
+	 */
+	public static StringBuilder appendString(StringBuilder sb, String value) {
+		if (value == null)
+			return sb.append("null"); //$NON-NLS-1$
+
+		sb.append('"');
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c < ' ')
+				sb.append(String.format("\\u%04x", Integer.valueOf(c))); //$NON-NLS-1$
+			else
+				sb.append(c);
+		}
+		return sb.append('"');
+	}
+}
@@ -9,7 +9,17 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses ({
 	FactoryTest.class,
-	DijkstraTest.class
+	FlightTableTest.class,
+	SnapshotTest.class,
+	RegistryTest.class,
+	NameIndexTest.class,
+	GraphIndexTest.class,
+	ReloadTest.class,
+	BatchRunnerTest.class,
+	QueryServerTest.class,
+	DijkstraTest.class,
+	ConnectionScanTest.class,
+	GeneratorTest.class
 })
 
 public class AppTest{
@@ -0,0 +1,61 @@
+package com.zamek.flight;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BatchRunnerTest {
+
+	@BeforeClass
+	public static void loadXML() {
+		Data.getInstance().load(AppTest.XML_FILE_NAME);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void batchTest() throws IOException {
+		Data data = Data.getInstance();
+		City faro = data.findCity("Faro").get(); //$NON-NLS-1$
+		City newYork = data.findCity("New York").get(); //$NON-NLS-1$
+		City budapest = data.findCity("Budapest").get(); //$NON-NLS-1$
+		String queries = "# source,destination[,airline]\nFaro,New York\n\nFaro,Budapest\nNowhere,Budapest\nFaro,New York,KLM\nFaro\n"; //$NON-NLS-1$
+		StringWriter csv = new StringWriter();
+		assertEquals(5, new BatchRunner(data, BatchRunner.Format.CSV, ForkJoinPool.commonPool()).run(new StringReader(queries), csv));
+		
+		Map<String, String> answers = new HashMap<>();
+		String[] lines = csv.toString().split("\n"); //$NON-NLS-1$
+		assertEquals("line,source,destination,airline,status,distance,flights", lines[0]); //$NON-NLS-1$
+		for (int i=1; i<lines.length; ++i)
+			answers.put(lines[i].substring(0, lines[i].indexOf(',')), lines[i]);
+		assertEquals(5, answers.size());
+		assertEquals(expectedAnswer(2, faro, newYork, null, Data.findPath(faro, newYork, null)), answers.get("2")); //$NON-NLS-1$
+		assertEquals(expectedAnswer(4, faro, budapest, null, Data.findPath(faro, budapest, null)), answers.get("4")); //$NON-NLS-1$
+		assertEquals("5,Nowhere,Budapest,,UNKNOWN_SOURCE,,", answers.get("5")); //$NON-NLS-1$ //$NON-NLS-2$
+		Airline klm = data.findAirline("KLM").get(); //$NON-NLS-1$
+		assertEquals(expectedAnswer(6, faro, newYork, klm, Data.findPath(faro, newYork, klm)), answers.get("6")); //$NON-NLS-1$
+		assertEquals("7,Faro,,,INVALID,,", answers.get("7")); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		StringWriter json = new StringWriter();
+		new BatchRunner(data, BatchRunner.Format.JSON, new ForkJoinPool(2)).run(new StringReader("Nowhere,Budapest\n"), json); //$NON-NLS-1$
+		assertEquals("{\"line\":1,\"source\":\"Nowhere\",\"destination\":\"Budapest\",\"airline\":null,\"status\":\"UNKNOWN_SOURCE\"}\n", json.toString()); //$NON-NLS-1$
+	}
+
+	private static String expectedAnswer(int line, City source, City destination, Airline airline, List<Flight> path) {
+		if (path == null)
+			return String.format("%d,%s,%s,%s,NO_PATH,,", Integer.valueOf(line), source.getName(), destination.getName(), //$NON-NLS-1$
+					airline == null ? "" : airline.getName()); //$NON-NLS-1$
+		return String.format("%d,%s,%s,%s,OK,%d,%s", Integer.valueOf(line), source.getName(), destination.getName(), //$NON-NLS-1$
+				airline == null ? "" : airline.getName(), Integer.valueOf(path.stream().mapToInt(Flight::getDistance).sum()), //$NON-NLS-1$
+				path.stream().map(Flight::getId).collect(Collectors.joining(" "))); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,94 @@
+package com.zamek.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zamek.flight.dijkstra.ConnectionScanEngine;
+import com.zamek.flight.dijkstra.DijkstraEngine;
+import com.zamek.flight.dijkstra.GraphIndex;
+
+public class ConnectionScanTest {
+
+	private final static Duration MIN_CONNECTION = Duration.ofMinutes(45);
+
+	@BeforeClass
+	public static void loadXML() {
+		Data.getInstance().load(AppTest.XML_FILE_NAME);
+	}
+
+	/**
+	 * Simulate a path taking every flight at its next departure
+	 *
+	 * @return arrival in seconds after the midnight of the start day
+	 */
+	private static long arrival(List<Flight> path, LocalTime start, Duration minConnection) {
+		long time = start.toSecondOfDay();
+		boolean first = true;
+		for (Flight f : path) {
+			long ready = first ? time : time + minConnection.getSeconds();
+			long departure = f.getDeparture().toSecondOfDay();
+			while (departure < ready)
+				departure += ConnectionScanEngine.DAY;
+			time = departure + f.getDuring().toSecondOfDay();
+			first = false;
+		}
+		return time;
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void earliestArrivalTest() {
+		List<City> cities = Data.getInstance().getCities();
+		ConnectionScanEngine cse = new ConnectionScanEngine(Data.getInstance());
+		cse.setMinConnection(MIN_CONNECTION);
+		DijkstraEngine de = new DijkstraEngine(Data.getInstance());
+		City source = Data.getInstance().findCity("Faro").get(); //$NON-NLS-1$
+		de.execute(source);
+		for (City target : cities) {
+			LinkedList<Flight> shortest = de.getPath(target);
+			LinkedList<Flight> earliest = cse.getPath(source, target, null, LocalTime.MIDNIGHT);
+			if (shortest == null)
+				continue;
+
+			assertNotNull(earliest);
+			assertEquals(source, earliest.getFirst().getSource());
+			assertEquals(target, earliest.getLast().getDestination());
+			for (int i = 1; i < earliest.size(); ++i)
+				assertEquals(earliest.get(i - 1).getDestination(), earliest.get(i).getSource());
+
+			long arrival = arrival(earliest, LocalTime.MIDNIGHT, MIN_CONNECTION);
+			assertEquals(arrival, cse.getArrival(target).getSeconds());
+			assertTrue(arrival <= arrival(shortest, LocalTime.MIDNIGHT, MIN_CONNECTION));
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void enginePoolTest() {
+		GraphIndex index = Data.getInstance().getIndex();
+		ConnectionScanEngine pooled = index.withConnectionScan(cse -> {
+			cse.setMinConnection(MIN_CONNECTION);
+			return cse;
+		});
+		assertSame(pooled, index.withConnectionScan(cse -> cse));
+		assertEquals(Duration.ZERO, pooled.getMinConnection());
+		
+		List<City> cities = Data.getInstance().getCities();
+		City source = Data.getInstance().findCity("Faro").get(); //$NON-NLS-1$
+		ConnectionScanEngine fresh = new ConnectionScanEngine(index);
+		fresh.setMinConnection(MIN_CONNECTION);
+		for (City target : cities)
+			assertEquals(fresh.getPath(source, target, null, LocalTime.MIDNIGHT),
+						 Data.findEarliestPath(source, target, null, LocalTime.MIDNIGHT, MIN_CONNECTION));
+	}
+}
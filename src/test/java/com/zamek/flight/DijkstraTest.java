@@ -1,18 +1,33 @@
 package com.zamek.flight;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.zamek.flight.dijkstra.AStarEngine;
+import com.zamek.flight.dijkstra.AllPairsTable;
 import com.zamek.flight.dijkstra.DijkstraEngine;
+import com.zamek.flight.dijkstra.GraphIndex;
+import com.zamek.flight.dijkstra.Metric;
+import com.zamek.flight.dijkstra.SearchSpace;
+import com.zamek.flight.dijkstra.ShortestPathTree;
+import com.zamek.flight.dijkstra.TreeCache;
 
 public class DijkstraTest {
 
@@ -24,15 +39,16 @@ public class DijkstraTest {
 	@SuppressWarnings("static-method")
 	@Test
 	public void minMaxRouteTest() {
-		List<City> cities = Data.getInstance().getCities();
+		Data d = Data.getInstance();
+		List<City> cities = d.getCities();
 		assertNotNull(cities);
 		assertTrue(cities.size()>0);
-		Optional<City> min = cities.stream().min((a, b)->a.getPopulation() - b.getPopulation());
+		Optional<City> min = cities.stream().min((a, b)->d.getPopulation(a) - d.getPopulation(b));
 		assertTrue(min.isPresent());
-		System.out.println("City of the smallest population is "+ min.get()); //$NON-NLS-1$
-		Optional<City> max = cities.stream().max((a,b)->a.getPopulation()-b.getPopulation());
+		System.out.println("City of the smallest population is "+ d.format(min.get())); //$NON-NLS-1$
+		Optional<City> max = cities.stream().max((a,b)->d.getPopulation(a)-d.getPopulation(b));
 		assertTrue(max.isPresent());
-		System.out.println("City of the largest population is "+ max.get());  //$NON-NLS-1$
+		System.out.println("City of the largest population is "+ d.format(max.get()));  //$NON-NLS-1$
 		DijkstraEngine de = new DijkstraEngine(Data.getInstance());
 		de.execute(min.get());
 		Map<Airline, LinkedList<Flight>> paths=new HashMap<>();
@@ -48,4 +64,199 @@ public class DijkstraTest {
 				Data.printPath(min.get(), max.get(), e.getValue());
 		
 	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void pathDistanceTest() {
+		DijkstraEngine de = new DijkstraEngine(Data.getInstance());
+		for (City source : Data.getInstance().getCities()) {
+			de.execute(source);
+			for (City target : Data.getInstance().getCities()) {
+				LinkedList<Flight> path = de.getPath(target);
+				if (path == null) {
+					assertTrue(target.equals(source) || de.getDistance(target) < 0);
+					continue;
+				}
+				assertEquals(source, path.getFirst().getSource());
+				assertEquals(target, path.getLast().getDestination());
+				assertEquals(de.getDistance(target), path.stream().mapToInt(Flight::getDistance).sum());
+			}
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void airlinePathTest() {
+		DijkstraEngine de = new DijkstraEngine(Data.getInstance());
+		City source = Data.getInstance().findCity("Budapest").get(); //$NON-NLS-1$
+		for (City target : Data.getInstance().getCities()) {
+			Map<Airline, LinkedList<Flight>> paths = de.getPathsByAirline(source, target);
+			for (Airline al : Data.getInstance().getAirlines()) {
+				de.execute(source, al);
+				LinkedList<Flight> path = de.getPath(target, al);
+				if (path == null) {
+					assertFalse(paths.containsKey(al));
+					continue;
+				}
+				assertTrue(path.stream().allMatch(f -> f.getAirline().equals(al)));
+				assertTrue(paths.get(al).stream().allMatch(f -> f.getAirline().equals(al)));
+				assertEquals(de.getDistance(target), paths.get(al).stream().mapToInt(Flight::getDistance).sum());
+			}
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void treeCacheTest() {
+		City source = Data.getInstance().findCity("Budapest").get(); //$NON-NLS-1$
+		ShortestPathTree tree = Data.getInstance().getTree(source, null, Metric.DISTANCE);
+		assertSame(tree, Data.getInstance().getTree(source, null, Metric.DISTANCE));
+		assertNotSame(tree, Data.getInstance().getTree(source, null, Metric.DURATION));
+
+		DijkstraEngine de = new DijkstraEngine(Data.getInstance());
+		de.execute(source);
+		for (City target : Data.getInstance().getCities()) {
+			assertEquals(de.getDistance(target), tree.getDistance(target));
+			assertEquals(de.getPath(target), Data.findPath(source, target, null));
+		}
+
+		TreeCache cache = new TreeCache(tree.getFootprint());
+		cache.get(source, null, Metric.DISTANCE, () -> tree);
+		cache.get(source, null, Metric.DURATION, () -> tree);
+		assertEquals(1, cache.size());
+		assertEquals(tree.getFootprint(), cache.getFootprint());
+
+		Airline klm = Airline.valueOf("KLM"); //$NON-NLS-1$
+		ShortestPathTree klmTree = Data.getInstance().getTree(source, klm, Metric.DISTANCE);
+		cache.setMaxFootprint(Long.MAX_VALUE);
+		cache.get(source, klm, Metric.DISTANCE, () -> klmTree);
+		TreeCache rebased = new TreeCache(Long.MAX_VALUE);
+		rebased.addAll(cache, new GraphIndex(Data.getInstance()), t -> t.getAirline() != null);
+		assertEquals(1, rebased.size());
+		ShortestPathTree copy = rebased.peek(source, klm, Metric.DISTANCE);
+		assertNotNull(copy);
+		for (City target : Data.getInstance().getCities()) {
+			assertEquals(klmTree.getPath(target), copy.getPath(target));
+			assertEquals(klmTree.getDistance(target), copy.getDistance(target));
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void allPairsTest() throws IOException {
+		DijkstraEngine de = new DijkstraEngine(Data.getInstance());
+		try (AllPairsTable heap = new AllPairsTable(Data.getInstance().getIndex(), Metric.DISTANCE, ForkJoinPool.commonPool(), AllPairsTable.DEFAULT_HEAP_LIMIT);
+			 AllPairsTable mapped = new AllPairsTable(Data.getInstance().getIndex(), Metric.DISTANCE, ForkJoinPool.commonPool(), 0)) {
+			for (City source : Data.getInstance().getCities()) {
+				de.execute(source);
+				for (City target : Data.getInstance().getCities()) {
+					LinkedList<Flight> path = heap.getPath(source, target);
+					assertEquals(de.getDistance(target), heap.getDistance(source, target));
+					assertEquals(path, mapped.getPath(source, target));
+					if (path == null)
+						continue;
+					
+					assertEquals(source, path.getFirst().getSource());
+					assertEquals(target, path.getLast().getDestination());
+					assertEquals(de.getDistance(target), path.stream().mapToInt(Flight::getDistance).sum());
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void pointToPointTest() {
+		DijkstraEngine de = new DijkstraEngine(Data.getInstance());
+		DijkstraEngine p2p = new DijkstraEngine(Data.getInstance());
+		for (Airline al : new Airline[] { null, Data.getInstance().findAirline("KLM").get() }) { //$NON-NLS-1$
+			for (City source : Data.getInstance().getCities()) {
+				de.execute(source, al);
+				for (City target : Data.getInstance().getCities()) {
+					LinkedList<Flight> path = p2p.findPath(source, target, al, Metric.DISTANCE);
+					if (de.getPath(target, al) == null) {
+						assertNull(path);
+						continue;
+					}
+					assertNotNull(path);
+					assertEquals(source, path.getFirst().getSource());
+					assertEquals(target, path.getLast().getDestination());
+					for (int i = 1; i < path.size(); ++i)
+						assertEquals(path.get(i - 1).getDestination(), path.get(i).getSource());
+					assertEquals(de.getDistance(target), path.stream().mapToInt(Flight::getDistance).sum());
+
+					p2p.execute(source, target, al, Metric.DISTANCE);
+					assertEquals(de.getPath(target, al), p2p.getPath(target, al));
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void aStarTest() {
+		assertTrue(Data.getInstance().getIndex().hasCoordinates());
+		DijkstraEngine de = new DijkstraEngine(Data.getInstance());
+		AStarEngine as = new AStarEngine(Data.getInstance());
+		for (City source : Data.getInstance().getCities()) {
+			de.execute(source);
+			for (City target : Data.getInstance().getCities()) {
+				LinkedList<Flight> path = as.findPath(source, target, null);
+				if (de.getPath(target) == null) {
+					assertNull(path);
+					continue;
+				}
+				assertNotNull(path);
+				assertEquals(source, path.getFirst().getSource());
+				assertEquals(target, path.getLast().getDestination());
+				assertEquals(de.getDistance(target), path.stream().mapToInt(Flight::getDistance).sum());
+			}
+		}
+	}
+
+	/**
+	 * Lend engines of the pool in nested searches
+	 *
+	 * @return the engines lent at the same time
+	 */
+	private static List<DijkstraEngine> nestedEngines(GraphIndex index, int depth) {
+		return index.withDijkstra(de -> {
+			List<DijkstraEngine> engines = depth > 1 ? nestedEngines(index, depth - 1) : new ArrayList<>();
+			engines.add(de);
+			return engines;
+		});
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void enginePoolTest() {
+		GraphIndex index = Data.getInstance().getIndex();
+		DijkstraEngine pooled = index.withDijkstra(de -> de);
+		assertSame(pooled, index.withDijkstra(de -> de));
+		assertNotSame(pooled, index.withDijkstra(de -> index.withDijkstra(nested -> nested)));
+		assertSame(index.withAStar(e -> e), index.withAStar(e -> e));
+		GraphIndex rebuilt = new GraphIndex(Data.getInstance());
+		assertNotSame(pooled, rebuilt.withDijkstra(de -> de));
+		List<DijkstraEngine> busy = nestedEngines(rebuilt, GraphIndex.POOL_SIZE + 1);
+		List<DijkstraEngine> kept = nestedEngines(rebuilt, GraphIndex.POOL_SIZE + 1);
+		kept.retainAll(busy);
+		assertEquals(GraphIndex.POOL_SIZE, kept.size());
+		
+		List<City> cities = Data.getInstance().getCities();
+		for (City source : cities)
+			for (City target : cities) {
+				DijkstraEngine fresh = new DijkstraEngine(index);
+				assertEquals(fresh.findPath(source, target, null, Metric.DISTANCE), index.withDijkstra(de -> de.findPath(source, target, null, Metric.DISTANCE)));
+				assertEquals(fresh.getPathsByAirline(source, target), index.withDijkstra(de -> de.getPathsByAirline(source, target)));
+				assertEquals(new AStarEngine(index).findPath(source, target, null), index.withAStar(e -> e.findPath(source, target, null)));
+			}
+		
+		SearchSpace space = new SearchSpace(2);
+		space.set(1, 5, 0);
+		assertEquals(5, space.getDistance(1));
+		space.reset();
+		assertFalse(space.isReached(1));
+		assertEquals(SearchSpace.UNREACHED, space.getDistance(1));
+		assertEquals(SearchSpace.NO_EDGE, space.getPredecessor(1));
+	}
 }
@@ -1,15 +1,34 @@
 package com.zamek.flight;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.zamek.flight.factory.CityRecord;
+import com.zamek.flight.factory.LoaderType;
+import com.zamek.flight.factory.PopulationFile;
+import com.zamek.flight.factory.ShardedFactory;
+import com.zamek.flight.factory.XMLFactory;
+
 public class FactoryTest {
 
 
@@ -37,15 +56,178 @@ public class FactoryTest {
 	@SuppressWarnings("static-method")
 	@Test
 	public void minMaxPopultaionCityTest() {
-		List<City> cities = Data.getInstance().getCities();
+		Data d = Data.getInstance();
+		List<City> cities = d.getCities();
 		assertNotNull(cities);
 		assertTrue(cities.size()>0);
-		Optional<City> min = cities.stream().min((a, b)->a.getPopulation() - b.getPopulation());
+		Optional<City> min = cities.stream().min((a, b)->d.getPopulation(a) - d.getPopulation(b));
 		assertTrue(min.isPresent());
-		System.out.println("City of the smallest population is "+ min.get()); //$NON-NLS-1$
-		Optional<City> max = cities.stream().max((a,b)->a.getPopulation()-b.getPopulation());
+		System.out.println("City of the smallest population is "+ d.format(min.get())); //$NON-NLS-1$
+		Optional<City> max = cities.stream().max((a,b)->d.getPopulation(a)-d.getPopulation(b));
 		assertTrue(max.isPresent());
-		System.out.println("City of the largest population is "+ max.get());  //$NON-NLS-1$
+		System.out.println("City of the largest population is "+ d.format(max.get()));  //$NON-NLS-1$
+		
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void cityRecordTest() throws IOException {
+		PopulationFile population = PopulationFile.open(XMLFactory.POPULATION_FILE);
+		CityRecord record = population.find("Awasa"); //$NON-NLS-1$
+		assertNotNull(record);
+		assertEquals("Awasa", record.getName()); //$NON-NLS-1$
+		assertEquals(133097, record.getPopulation());
+		
+		record = population.find("Elephant Island"); //$NON-NLS-1$
+		assertNotNull(record);
+		assertEquals("Elephant Island, South Shetland Islands", record.getAsciiName()); //$NON-NLS-1$
+		assertEquals("Antarctica", record.getCountry()); //$NON-NLS-1$
+		assertEquals(-61.99958901, record.getLatitude(), 1e-9);
+		
+		assertNull(parseRecord("Nowhere,Nowhere,x,y")); //$NON-NLS-1$
+		
+		City budapest = Data.getInstance().findCity("Budapest").get(); //$NON-NLS-1$
+		FlightTable table = Data.getInstance().getFlightTable();
+		assertEquals(1679000, table.getPopulation(table.indexOf(budapest)));
+		assertTrue(table.hasCoordinates(table.indexOf(budapest)));
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void staxLoaderTest() throws IOException {
+		XMLFactory sax = LoaderType.SAX.create(AppTest.XML_FILE_NAME, true);
+		sax.loadPopulation();
+		sax.loadXml();
+		XMLFactory stax = LoaderType.STAX.create(AppTest.XML_FILE_NAME, true);
+		stax.loadPopulation();
+		stax.loadXml();
+		
+		assertFalse(stax.hasErrors());
+		assertEquals(sax.getAirlines(), stax.getAirlines());
+		assertEquals(sax.getCities(), stax.getCities());
+		assertEquals(sax.getFlights(), stax.getFlights());
 		
+		Path xml = Files.createTempFile("invalid", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			String content = new String(Files.readAllBytes(Paths.get(AppTest.XML_FILE_NAME)), StandardCharsets.UTF_8)
+					.replaceFirst("distance=\"\\d+\"", "distance=\"-1\""); //$NON-NLS-1$ //$NON-NLS-2$
+			Files.write(xml, content.getBytes(StandardCharsets.UTF_8));
+			XMLFactory invalid = LoaderType.STAX.create(xml.toString(), true);
+			invalid.loadPopulation();
+			invalid.loadXml();
+			assertTrue(invalid.hasErrors());
+		}
+		finally {
+			Files.deleteIfExists(xml);
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void parallelLoaderTest() throws IOException {
+		XMLFactory sax = LoaderType.SAX.create(AppTest.XML_FILE_NAME, true);
+		sax.loadPopulation();
+		sax.loadXml();
+		XMLFactory parallel = new ShardedFactory(AppTest.XML_FILE_NAME, true, 3);
+		parallel.loadPopulation();
+		parallel.loadXml();
+		
+		assertFalse(parallel.hasErrors());
+		assertEquals(sax.getAirlines(), parallel.getAirlines());
+		assertEquals(sax.getCities(), parallel.getCities());
+		assertEquals(sax.getFlights(), parallel.getFlights());
+		
+		Path xml = Files.createTempFile("commented", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			String hidden = "<airline name=\"Hidden\"><flights></flights></airline>"; //$NON-NLS-1$
+			String content = new String(Files.readAllBytes(Paths.get(AppTest.XML_FILE_NAME)), StandardCharsets.UTF_8)
+					.replaceFirst("<airline ", "<!-- " + hidden + " --><![CDATA[" + hidden + "]]><airline "); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			Files.write(xml, content.getBytes(StandardCharsets.UTF_8));
+			XMLFactory commented = new ShardedFactory(xml.toString(), false, 3);
+			commented.loadPopulation();
+			commented.loadXml();
+			assertFalse(commented.hasErrors());
+			assertEquals(sax.getAirlines(), commented.getAirlines());
+			assertEquals(sax.getFlights(), commented.getFlights());
+			
+			String copy = "<airline name=\"Copy\"><flights><flight flightId=\"KLM1\" from=\"Budapest\" to=\"Moscow\" " //$NON-NLS-1$
+					+ "distance=\"1565\" during=\"03:30:00\" departure=\"00:00:00\"/></flights></airline></airlines>"; //$NON-NLS-1$
+			content = new String(Files.readAllBytes(Paths.get(AppTest.XML_FILE_NAME)), StandardCharsets.UTF_8)
+					.replaceFirst("</airlines>", copy); //$NON-NLS-1$
+			Files.write(xml, content.getBytes(StandardCharsets.UTF_8));
+			XMLFactory duplicated = new ShardedFactory(xml.toString(), true, 3);
+			duplicated.loadPopulation();
+			duplicated.loadXml();
+			assertTrue(duplicated.hasErrors());
+		}
+		finally {
+			Files.deleteIfExists(xml);
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void populationFileTest() throws IOException {
+		PopulationFile population = PopulationFile.open(XMLFactory.POPULATION_FILE);
+		Map<String, CityRecord> records = new HashMap<>();
+		try (Stream<String> lines = Files.lines(Paths.get(XMLFactory.POPULATION_FILE))) {
+			lines.skip(1).map(FactoryTest::parseRecord).filter(Objects::nonNull).forEach(r->records.putIfAbsent(r.getName(), r));
+		}
+		assertTrue(population.size()>=records.size());
+		for (CityRecord expected : records.values()) {
+			CityRecord record = population.find(expected.getName());
+			assertNotNull(expected.getName(), record);
+			assertEquals(expected.getName(), record.getName());
+			assertEquals(expected.getAsciiName(), record.getAsciiName());
+			assertEquals(expected.getCountry(), record.getCountry());
+			assertEquals(expected.getLatitude(), record.getLatitude(), 0);
+			assertEquals(expected.getLongitude(), record.getLongitude(), 0);
+			// parseRecord rounds through float
+			assertEquals(expected.getPopulation(), record.getPopulation(), Math.max(1, expected.getPopulation() * 1e-7));
+		}
+		
+		assertEquals("Budapest", population.find("BUDAPEST").getName()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Elephant Island, South Shetland Islands", population.find("elephant island, south shetland islands").getAsciiName()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(population.find("Nowhere")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Reference parser of a csv line of the population database, fields can be quoted
+	 * 
+	 * @param line the line
+	 * @return the record or null if the line is not valid
+	 */
+	private static CityRecord parseRecord(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i=0; i<line.length(); ++i) {
+			char c = line.charAt(i);
+			if (c=='"') {
+				if (quoted && i+1<line.length() && line.charAt(i+1)=='"') {
+					field.append(c);
+					++i;
+				}
+				else
+					quoted = !quoted;
+			}
+			else if (c==',' && !quoted) {
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else
+				field.append(c);
+		}
+		fields.add(field.toString());
+		if (fields.size()<6)
+			return null;
+
+		try {
+			return new CityRecord(fields.get(0), fields.get(1), Double.parseDouble(fields.get(2)), Double.parseDouble(fields.get(3)),
+					Math.round(Float.parseFloat(fields.get(4))), fields.get(5));
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
 	}
 }
@@ -0,0 +1,96 @@
+package com.zamek.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zamek.flight.dijkstra.Adjacency;
+import com.zamek.flight.dijkstra.Graph;
+import com.zamek.flight.dijkstra.GraphIndex;
+
+public class FlightTableTest {
+
+	@BeforeClass
+	public static void loadXML() {
+		Data.getInstance().load(AppTest.XML_FILE_NAME);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void flightTableTest() {
+		Data data = Data.getInstance();
+		FlightTable table = data.getFlightTable();
+		assertEquals(data.getFlights().size(), table.size());
+		Flight view = data.getFlights().get(0);
+		assertEquals(table.getId(0), view.getId());
+		assertEquals(table.getCity(table.getSource(0)), view.getSource());
+		assertEquals(table.getDeparture(0), view.getDeparture().toSecondOfDay());
+		
+		Optional<Flight> copy = new Flight.Builder().id(view.getId()).source(view.getSource()).destination(view.getDestination())
+				.airLine(view.getAirline()).distance(String.valueOf(view.getDistance()))
+				.departure(view.getDeparture().toString()).during(view.getDuring().toString()).get();
+		assertTrue(copy.isPresent());
+		assertEquals(view, copy.get());
+		assertEquals(view.hashCode(), copy.get().hashCode());
+		copy.get().setDistance(view.getDistance() + 1);
+		assertTrue(!view.equals(copy.get()));
+		assertNull(new Flight().getDuring());
+		
+		Graph objects = new Graph() {
+			@Override
+			public List<City> getCities() {
+				return data.getCities();
+			}
+			
+			@Override
+			public List<Flight> getFlights() {
+				return data.getFlights();
+			}
+		};
+		Adjacency columnar = data.getIndex().getAdjacency(null);
+		Adjacency built = new GraphIndex(objects).getAdjacency(null);
+		assertEquals(built.edgeCount(), columnar.edgeCount());
+		for (int e=0; e<built.edgeCount(); ++e) {
+			assertEquals(built.getTarget(e), columnar.getTarget(e));
+			assertTrue(built.getFlight(e)==columnar.getFlight(e));
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void readOnlyTest() {
+		Data data = Data.getInstance();
+		Flight flight = data.getFlights().get(0);
+		City source = flight.getSource();
+		int distance = flight.getDistance();
+		List<Flight> outgoing = data.getFlightsFrom(source);
+		assertTrue(!data.getFlightTable().isWritable());
+		try {
+			flight.setSource(flight.getDestination());
+			fail("A published flight is changed"); //$NON-NLS-1$
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			flight.setDistance(distance + 1);
+			fail("A published flight is changed"); //$NON-NLS-1$
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals(source, flight.getSource());
+		assertEquals(distance, flight.getDistance());
+		assertEquals(outgoing, data.getFlightsFrom(source));
+		Adjacency all = data.getIndex().getAdjacency(null);
+		for (int e=0; e<all.edgeCount(); ++e)
+			assertEquals(all.getFlight(e).getSource(), data.getIndex().getCity(all.getSource(e)));
+	}
+}
@@ -0,0 +1,83 @@
+package com.zamek.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+import com.zamek.flight.factory.PopulationFile;
+import com.zamek.flight.factory.XMLFactory;
+import com.zamek.flight.generator.GeneratorApp;
+import com.zamek.flight.generator.TimetableGenerator;
+import com.zamek.flight.generator.Topology;
+
+public class GeneratorTest {
+	private final static int CITIES = 50;
+	private final static int FLIGHTS = 1001;
+	private final static int AIRLINES = 4;
+	private final static int HUBS = 3;
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void hubAndSpokeTest() throws IOException {
+		Path xml = Files.createTempFile(Paths.get("target"), "generated", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		try {
+			assertTrue(GeneratorApp.generate(new String[] { "--output", xml.toString(), "--flights", String.valueOf(FLIGHTS), //$NON-NLS-1$ //$NON-NLS-2$
+					"--airlines", String.valueOf(AIRLINES), "--cities", String.valueOf(CITIES), //$NON-NLS-1$ //$NON-NLS-2$
+					"--topology", "hub_and_spoke", "--hubs", String.valueOf(HUBS) })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+			XMLFactory factory = new XMLFactory(xml.toString());
+			factory.loadPopulation();
+			factory.loadXml();
+			assertTrue(!factory.hasErrors());
+			assertEquals(FLIGHTS, factory.getFlights().size());
+			assertEquals(AIRLINES, factory.getAirlines().size());
+			assertTrue(factory.getCities().size() <= CITIES);
+			FlightTable table = factory.getFlightTable();
+			for (int c = 0; c < table.getCities().size(); ++c)
+				assertTrue(table.getPopulation(c) > 0 && table.hasCoordinates(c));
+			for (Airline a : factory.getAirlines()) {
+				Set<City> hubs = new HashSet<>();
+				for (Flight f : factory.getFlights())
+					if (f.getAirline() == a && !f.getId().endsWith("R")) //$NON-NLS-1$
+						hubs.add(f.getSource());
+				assertTrue(hubs.size() <= HUBS);
+			}
+		}
+		finally {
+			Files.deleteIfExists(xml);
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void reproducibleTest() throws IOException, XMLStreamException {
+		PopulationFile population = PopulationFile.open(XMLFactory.POPULATION_FILE);
+		ByteArrayOutputStream first = new ByteArrayOutputStream();
+		new TimetableGenerator(population, CITIES).flights(FLIGHTS).seed(7).write(first);
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+		new TimetableGenerator(population, CITIES).flights(FLIGHTS).seed(7).write(second);
+		assertTrue(first.size() > 0);
+		assertTrue(Arrays.equals(first.toByteArray(), second.toByteArray()));
+		
+		try {
+			new TimetableGenerator(population, CITIES).flights(1).airlines(2).topology(Topology.MESH).write(new ByteArrayOutputStream());
+			fail("An airline without flights is generated"); //$NON-NLS-1$
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.zamek.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zamek.flight.dijkstra.Adjacency;
+import com.zamek.flight.dijkstra.GraphIndex;
+
+public class GraphIndexTest {
+
+	@BeforeClass
+	public static void loadXML() {
+		Data.getInstance().load(AppTest.XML_FILE_NAME);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void partitionTest() {
+		Data data = Data.getInstance();
+		int total = 0;
+		for (Airline a : data.getAirlines()) {
+			List<Flight> expected = data.getFlights().stream().filter(f -> f.getAirline()==a).collect(Collectors.toList());
+			assertEquals(expected, data.getFlightOfAirline(a));
+			total += expected.size();
+			
+			// partitions are views of the rows of all airlines
+			GraphIndex index = data.getIndex();
+			Adjacency partition = index.getAdjacency(a);
+			Adjacency reverse = index.getReverseAdjacency(a);
+			assertEquals(expected.size(), partition.edgeCount());
+			assertEquals(expected.size(), reverse.edgeCount());
+			for (int e=0; e<partition.edgeCount(); ++e) {
+				assertTrue(partition.getFlight(e).getAirline()==a);
+				assertEquals(index.getId(partition.getFlight(e).getSource()), partition.getSource(e));
+				assertEquals(index.getId(partition.getFlight(e).getDestination()), partition.getTarget(e));
+				assertEquals(index.getId(reverse.getFlight(e).getDestination()), reverse.getSource(e));
+				assertEquals(index.getId(reverse.getFlight(e).getSource()), reverse.getTarget(e));
+			}
+		}
+		assertEquals(data.getFlights().size(), total);
+		assertTrue(data.getFlightOfAirline(Airline.valueOf("Partition test airline")).isEmpty()); //$NON-NLS-1$
+		
+		City budapest = data.findCity("Budapest").get(); //$NON-NLS-1$
+		assertEquals(data.getFlights().stream().filter(f -> f.getSource()==budapest).collect(Collectors.toList()), data.getFlightsFrom(budapest));
+		assertEquals(data.getFlights().stream().filter(f -> f.getDestination()==budapest).collect(Collectors.toList()), data.getFlightsTo(budapest));
+		try {
+			data.getFlightsFrom(budapest).clear();
+			fail("Partitions must be immutable"); //$NON-NLS-1$
+		}
+		catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.zamek.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class NameIndexTest {
+
+	@BeforeClass
+	public static void loadXML() {
+		Data.getInstance().load(AppTest.XML_FILE_NAME);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void nameIndexTest() {
+		Data data = Data.getInstance();
+		City budapest = data.findCity("Budapest").get(); //$NON-NLS-1$
+		assertTrue(data.findCity("BUDAPEST").get()==budapest); //$NON-NLS-1$
+		assertTrue(!data.findCity("Budapes").isPresent()); //$NON-NLS-1$
+		List<City> completed = data.completeCity("bu", 10); //$NON-NLS-1$
+		assertTrue(completed.contains(budapest));
+		for (City c : completed)
+			assertTrue(c.getName().toLowerCase().startsWith("bu")); //$NON-NLS-1$
+		assertEquals(1, data.completeCity("b", 1).size()); //$NON-NLS-1$
+		assertTrue(data.completeCity("", 0).isEmpty()); //$NON-NLS-1$
+		assertTrue(data.findAirline("klm").get()==Airline.valueOf("KLM")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(data.completeAirline("k", 5).contains(Airline.valueOf("KLM"))); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		NameIndex<City> index = new NameIndex<>(data.getCities(), City::getName, c -> "Alias of " + c.getName()); //$NON-NLS-1$
+		assertTrue(index.get("alias of budapest")==budapest); //$NON-NLS-1$
+		assertEquals(1, index.complete("Budapest", 5).size()); //$NON-NLS-1$
+		
+		List<String> names = Arrays.asList("Bar", "BAR", "bar", "bAr", "Bari", "Ba", "Bas"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+		NameIndex<String> duplicated = NameIndex.of(names, n -> n);
+		assertEquals(names.subList(0, 5), duplicated.complete("bar", 10)); //$NON-NLS-1$
+		assertEquals(names.subList(0, 2), duplicated.complete("BAR", 2)); //$NON-NLS-1$
+	}
+}
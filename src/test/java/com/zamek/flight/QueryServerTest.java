@@ -0,0 +1,86 @@
+package com.zamek.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class QueryServerTest {
+
+	@BeforeClass
+	public static void loadXML() {
+		Data.getInstance().load(AppTest.XML_FILE_NAME);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void serverTest() throws IOException {
+		Data data = Data.getInstance();
+		City faro = data.findCity("Faro").get(); //$NON-NLS-1$
+		City newYork = data.findCity("New York").get(); //$NON-NLS-1$
+		try (QueryServer server = new QueryServer(data, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2)) {
+			server.start();
+			String base = "http://127.0.0.1:" + server.getPort(); //$NON-NLS-1$
+			
+			HttpURLConnection c = (HttpURLConnection) new URL(base + "/route?source=Faro&destination=New%20York").openConnection(); //$NON-NLS-1$
+			assertEquals(200, c.getResponseCode());
+			assertNotNull(c.getHeaderField(QueryServer.TIMING_HEADER));
+			String route = readBody(c);
+			List<Flight> path = Data.findPath(faro, newYork, null);
+			assertTrue(route.contains("\"status\":\"OK\",\"distance\":" + path.stream().mapToInt(Flight::getDistance).sum())); //$NON-NLS-1$
+			for (Flight f : path)
+				assertTrue(route.contains("\"flightId\":\"" + f.getId() + '"')); //$NON-NLS-1$
+			
+			c = (HttpURLConnection) new URL(base + "/route?source=Nowhere&destination=Faro").openConnection(); //$NON-NLS-1$
+			assertEquals(404, c.getResponseCode());
+			c = (HttpURLConnection) new URL(base + "/route?source=Faro").openConnection(); //$NON-NLS-1$
+			assertEquals(400, c.getResponseCode());
+			
+			c = (HttpURLConnection) new URL(base + "/airlines").openConnection(); //$NON-NLS-1$
+			assertEquals(200, c.getResponseCode());
+			assertTrue(readBody(c).contains("{\"name\":\"KLM\",\"flights\":" + data.getFlightOfAirline(Airline.valueOf("KLM")).size() + '}')); //$NON-NLS-1$ //$NON-NLS-2$
+			
+			c = (HttpURLConnection) new URL(base + "/flights?airline=KLM").openConnection(); //$NON-NLS-1$
+			assertEquals(200, c.getResponseCode());
+			String flights = readBody(c);
+			assertEquals(data.getFlightOfAirline(Airline.valueOf("KLM")).size(), flights.split("\"flightId\"", -1).length - 1); //$NON-NLS-1$ //$NON-NLS-2$
+			
+			c = (HttpURLConnection) new URL(base + "/flights?offset=1&limit=2").openConnection(); //$NON-NLS-1$
+			assertEquals(200, c.getResponseCode());
+			flights = readBody(c);
+			assertEquals(2, flights.split("\"flightId\"", -1).length - 1); //$NON-NLS-1$
+			assertTrue(flights.startsWith("[{\"flightId\":\"" + data.getFlights().get(1).getId() + '"')); //$NON-NLS-1$
+			assertTrue(flights.contains("{\"flightId\":\"" + data.getFlights().get(2).getId() + '"')); //$NON-NLS-1$
+			c = (HttpURLConnection) new URL(base + "/flights?offset=" + data.getFlights().size()).openConnection(); //$NON-NLS-1$
+			assertEquals("[]", readBody(c)); //$NON-NLS-1$
+			c = (HttpURLConnection) new URL(base + "/flights?limit=" + (QueryServer.MAX_PAGE + 1)).openConnection(); //$NON-NLS-1$
+			assertEquals(400, c.getResponseCode());
+			
+			c = (HttpURLConnection) new URL(base + "/cities?prefix=Buda&limit=1").openConnection(); //$NON-NLS-1$
+			assertEquals(200, c.getResponseCode());
+			assertEquals("[{\"name\":\"Budapest\",\"population\":1679000}]", readBody(c)); //$NON-NLS-1$
+		}
+	}
+
+	private static String readBody(HttpURLConnection c) throws IOException {
+		try (InputStream in = c.getInputStream()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			for (int n; (n = in.read(buffer)) > 0;)
+				out.write(buffer, 0, n);
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.zamek.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RegistryTest {
+
+	@BeforeClass
+	public static void loadXML() {
+		Data.getInstance().load(AppTest.XML_FILE_NAME);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void registryTest() {
+		City budapest = Data.getInstance().findCity("Budapest").get(); //$NON-NLS-1$
+		assertTrue(City.valueOf("Budapest")==budapest); //$NON-NLS-1$
+		assertTrue(budapest.getId()<City.count());
+		assertEquals(budapest.getId(), budapest.hashCode());
+		assertTrue(Airline.valueOf("KLM")==Data.getInstance().findAirline("KLM").get()); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		City other = City.valueOf("Registry test city"); //$NON-NLS-1$
+		assertTrue(!other.equals(budapest));
+		other.setName("Budapest"); //$NON-NLS-1$
+		assertEquals("Registry test city", other.getName()); //$NON-NLS-1$
+		
+		// an other load of the same city does not change the loaded data
+		FlightTable load = new FlightTable();
+		int id = load.addCity(budapest, 1, 0, 0, null);
+		assertEquals(1, load.getPopulation(id));
+		assertEquals(1679000, Data.getInstance().getPopulation(budapest));
+		assertEquals("Budapest (1679000)", Data.getInstance().format(budapest)); //$NON-NLS-1$
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void releaseTest() {
+		assertNull(City.valueOf(null));
+		assertNull(Airline.valueOf(null));
+		
+		City renamed = City.valueOf("Released test city"); //$NON-NLS-1$
+		renamed.setName("Renamed test city"); //$NON-NLS-1$
+		assertTrue(City.valueOf("Renamed test city")==renamed); //$NON-NLS-1$
+		assertTrue(City.valueOf("Released test city")!=renamed); //$NON-NLS-1$
+		
+		WeakReference<City> city = new WeakReference<>(renamed);
+		WeakReference<Airline> airline = new WeakReference<>(Airline.valueOf("Released test airline")); //$NON-NLS-1$
+		renamed = null;
+		for (int i=0; i<50 && (city.get()!=null || airline.get()!=null); ++i)
+			System.gc();
+		assertNull(city.get());
+		assertNull(airline.get());
+		assertTrue(Data.getInstance().findCity("Budapest").get()==City.valueOf("Budapest")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,121 @@
+package com.zamek.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zamek.flight.dijkstra.Metric;
+import com.zamek.flight.dijkstra.ShortestPathTree;
+import com.zamek.flight.factory.LoaderType;
+
+public class ReloadTest {
+
+	@BeforeClass
+	public static void loadXML() {
+		Data.getInstance().load(AppTest.XML_FILE_NAME);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void reloadTest() throws InterruptedException {
+		Data data = Data.getInstance();
+		City source = data.findCity("Faro").get(); //$NON-NLS-1$
+		City destination = data.findCity("New York").get(); //$NON-NLS-1$
+		List<Flight> expected = Data.findPath(source, destination, null);
+		assertNotNull(expected);
+		
+		AtomicBoolean loading = new AtomicBoolean(true);
+		AtomicInteger failures = new AtomicInteger();
+		Thread reader = new Thread(() -> {
+			while (loading.get())
+				if (!expected.equals(Data.findPath(source, destination, null)) || data.getFlightOfAirline(Airline.valueOf("KLM")).isEmpty()) //$NON-NLS-1$
+					failures.incrementAndGet();
+		});
+		reader.start();
+		for (int i=0; i<3; ++i)
+			data.load(AppTest.XML_FILE_NAME, false, LoaderType.STAX);
+		loading.set(false);
+		reader.join();
+		assertEquals(0, failures.get());
+		assertTrue(Data.getInstance()==data);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void hotReloadTest() throws IOException, InterruptedException {
+		String original = new String(Files.readAllBytes(Paths.get(AppTest.XML_FILE_NAME)), StandardCharsets.UTF_8);
+		String klm1 = "flightId=\"KLM1\" from=\"Budapest\" to=\"Moscow\" distance=\"1565\""; //$NON-NLS-1$
+		assertTrue(original.contains(klm1));
+		Path xml = Files.createTempFile(Paths.get("target"), "flights", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		Data data = Data.getInstance();
+		try {
+			Files.write(xml, original.getBytes(StandardCharsets.UTF_8));
+			data.load(xml.toString());
+			City budapest = data.findCity("Budapest").get(); //$NON-NLS-1$
+			City faro = data.findCity("Faro").get(); //$NON-NLS-1$
+			Airline klm = Airline.valueOf("KLM"); //$NON-NLS-1$
+			Airline wizzAir = Airline.valueOf("WizzAir"); //$NON-NLS-1$
+			ShortestPathTree klmTree = data.getTree(budapest, klm, Metric.DISTANCE);
+			ShortestPathTree wizzAirTree = data.getTree(faro, wizzAir, Metric.DISTANCE);
+			assertTrue(!data.reload(xml.toString(), true, LoaderType.SAX));
+			
+			Files.write(xml, original.replace(klm1, klm1.replace("1565", "1566")).getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue(data.reload(xml.toString(), true, LoaderType.SAX));
+			ShortestPathTree kept = data.getTree(faro, wizzAir, Metric.DISTANCE);
+			assertTrue(kept!=wizzAirTree);
+			for (City c : data.getCities()) {
+				assertEquals(wizzAirTree.getPath(c), kept.getPath(c));
+				if (kept.getPath(c) != null)
+					for (Flight f : kept.getPath(c))
+						assertTrue(data.getFlights().stream().anyMatch(g -> g==f));
+			}
+			assertTrue(data.getTree(budapest, klm, Metric.DISTANCE)!=klmTree);
+			assertEquals(1566, data.getFlightOfAirline(klm).get(0).getDistance());
+			
+			Files.write(xml, original.substring(0, original.length() / 2).getBytes(StandardCharsets.UTF_8));
+			assertTrue(!data.reload(xml.toString(), true, LoaderType.SAX));
+			assertEquals(1566, data.getFlightOfAirline(klm).get(0).getDistance());
+			
+			try (FlightsWatcher watcher = data.watch(xml.toString(), true, LoaderType.SAX)) {
+				Files.write(xml, original.replace(klm1, klm1.replace("1565", "1567")).getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+				for (int i=0; i<200 && data.getFlightOfAirline(klm).get(0).getDistance()!=1567; ++i)
+					Thread.sleep(50);
+				assertEquals(1567, data.getFlightOfAirline(klm).get(0).getDistance());
+			}
+		}
+		finally {
+			Files.deleteIfExists(xml);
+			data.load(AppTest.XML_FILE_NAME);
+		}
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void cityChangeTest() {
+		Data data = Data.getInstance();
+		FlightTable loaded = data.getFlightTable();
+		FlightTable copy = new FlightTable();
+		copy.addAll(loaded);
+		assertTrue(copy.hasSameCities(loaded));
+		
+		City budapest = data.findCity("Budapest").get(); //$NON-NLS-1$
+		int id = loaded.indexOf(budapest);
+		FlightTable changed = new FlightTable();
+		changed.addCity(budapest, loaded.getPopulation(id) + 1, loaded.getLatitude(id), loaded.getLongitude(id), loaded.getAsciiName(id));
+		changed.addAll(loaded);
+		assertTrue(!changed.hasSameCities(loaded));
+		assertTrue(!loaded.hasSameCities(changed));
+	}
+}
@@ -0,0 +1,100 @@
+package com.zamek.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zamek.flight.dijkstra.Adjacency;
+import com.zamek.flight.dijkstra.Graph;
+import com.zamek.flight.dijkstra.GraphIndex;
+import com.zamek.flight.factory.LoaderType;
+import com.zamek.flight.factory.SnapshotFile;
+import com.zamek.flight.factory.XMLFactory;
+
+public class SnapshotTest {
+
+	@BeforeClass
+	public static void loadXML() {
+		Data.getInstance().load(AppTest.XML_FILE_NAME);
+	}
+
+	@SuppressWarnings("static-method")
+	@Test
+	public void snapshotTest() throws IOException {
+		XMLFactory sax = LoaderType.SAX.create(AppTest.XML_FILE_NAME, true);
+		sax.loadPopulation();
+		sax.loadXml();
+		Path dir = Files.createTempDirectory("snapshot"); //$NON-NLS-1$
+		Path xml = dir.resolve("flights.xml"); //$NON-NLS-1$
+		Path file = dir.resolve("flights.snapshot"); //$NON-NLS-1$
+		try {
+			Files.copy(Paths.get(AppTest.XML_FILE_NAME), xml);
+			String[] sources = { xml.toString(), XMLFactory.POPULATION_FILE };
+			SnapshotFile.write(file.toString(), sources, sax.getFlightTable(), sax.getAirlines());
+			
+			SnapshotFile snapshot = SnapshotFile.open(file.toString(), sources);
+			assertNotNull(snapshot);
+			assertEquals(sax.getAirlines(), snapshot.getAirlines());
+			assertEquals(sax.getCities(), snapshot.getFlightTable().getCities());
+			List<Flight> flights = snapshot.getFlightTable().toList();
+			assertEquals(sax.getFlights(), flights);
+			
+			Graph graph = new Graph() {
+				@Override
+				public List<City> getCities() {
+					return snapshot.getFlightTable().getCities();
+				}
+				
+				@Override
+				public List<Flight> getFlights() {
+					return flights;
+				}
+			};
+			Adjacency built = new GraphIndex(graph).getAdjacency(null);
+			Adjacency prebuilt = new GraphIndex(graph, snapshot.getOffsets(), snapshot.getTargets(), snapshot.getOrder()).getAdjacency(null);
+			assertEquals(built.edgeCount(), prebuilt.edgeCount());
+			for (int e=0; e<built.edgeCount(); ++e) {
+				assertEquals(built.getSource(e), prebuilt.getSource(e));
+				assertEquals(built.getTarget(e), prebuilt.getTarget(e));
+				assertTrue(built.getFlight(e)==prebuilt.getFlight(e));
+			}
+			
+			assertTrue(xml.toFile().setLastModified(System.currentTimeMillis() + 10000));
+			assertNull(SnapshotFile.open(file.toString(), sources));
+			
+			SnapshotFile.write(file.toString(), sources, sax.getFlightTable(), sax.getAirlines());
+			byte[] bytes = Files.readAllBytes(file);
+			bytes[bytes.length / 2] ^= 1;
+			Files.write(file, bytes);
+			try {
+				SnapshotFile.open(file.toString(), sources);
+				fail("Corrupt snapshot is opened"); //$NON-NLS-1$
+			}
+			catch (IOException e) {
+				// expected
+			}
+			
+			Files.delete(file);
+			Data.getInstance().load(dir.resolve("missing.xml").toString(), true, LoaderType.SAX, file.toString()); //$NON-NLS-1$
+			assertFalse(Files.exists(file));
+		}
+		finally {
+			Data.getInstance().load(AppTest.XML_FILE_NAME);
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(xml);
+			Files.deleteIfExists(dir);
+		}
+	}
+}